@@ -0,0 +1,89 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import projects.dao.DbConnection;
+import projects.dao.ProjectDao;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+// Seeds the database configured in DbConnection with benchmark projects. Benchmark rows
+// are named with a "jmh-" prefix so they can be found and removed without touching
+// anything else, and an existing seed of the right size is reused between trials.
+final class BenchmarkData {
+    static final String PREFIX = "jmh-";
+    // Bumped after deleting projects outside ProjectDao; see CategoryDictionary
+    static final String LINK_VERSION_BUMP_SQL = "UPDATE project_category_version SET version = version + 1 WHERE id = 1";
+    static final int STEPS_PER_PROJECT = 10;
+    static final int MATERIALS_PER_PROJECT = 5;
+
+    private BenchmarkData() {
+    }
+
+    // Make sure exactly projectCount benchmark projects exist and return their IDs
+    static List<Integer> seed(int projectCount) {
+        List<Integer> ids = seededIds();
+        if (ids.size() == projectCount) {
+            return ids;
+        }
+
+        clear();
+        ProjectDao dao = new ProjectDao();
+        ids = new ArrayList<>(projectCount);
+        for (int i = 0; i < projectCount; i++) {
+            Project project = new Project(String.format("%s%07d", PREFIX, i), new BigDecimal("8.00"),
+                    new BigDecimal("6.50"), i % 5 + 1, "Seeded for benchmarks");
+            for (int s = 0; s < STEPS_PER_PROJECT; s++) {
+                project.getSteps().add(new Step(null, "Step " + (s + 1), s + 1));
+            }
+            for (int m = 0; m < MATERIALS_PER_PROJECT; m++) {
+                Material material = new Material();
+                material.setMaterialName("Material " + (m + 1));
+                material.setNumRequired(m + 1);
+                material.setCost(new BigDecimal("2.25"));
+                project.getMaterials().add(material);
+            }
+            dao.saveProject(project);
+            ids.add(project.getProjectId());
+        }
+        return ids;
+    }
+
+    // Remove every benchmark project; steps, materials and category links go with them by
+    // cascade. The link version is bumped so running applications reload category counts.
+    static void clear() {
+        try (Connection conn = DbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM project WHERE project_name LIKE ?");
+             PreparedStatement bump = conn.prepareStatement(LINK_VERSION_BUMP_SQL)) {
+            stmt.setString(1, PREFIX + "%");
+            stmt.executeUpdate();
+            bump.executeUpdate();
+        } catch (SQLException e) {
+            throw new DbException("Could not clear benchmark data", e);
+        }
+    }
+
+    private static List<Integer> seededIds() {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT project_id FROM project WHERE project_name LIKE ? ORDER BY project_id")) {
+            stmt.setString(1, PREFIX + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DbException("Could not read benchmark data", e);
+        }
+        return ids;
+    }
+}
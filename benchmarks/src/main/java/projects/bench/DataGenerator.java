@@ -0,0 +1,188 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import projects.dao.DbConnection;
+import projects.dao.SchemaMigrator;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.service.ProjectService;
+
+// Seeds project, step, material, category and project_category with synthetic data.
+// Child counts per project and category popularity follow a Zipf distribution, so a
+// few projects are large and a few categories are very common. Generated rows are
+// named with a "gen-" prefix; --clear removes them first.
+//
+//     java -cp target/benchmarks.jar projects.bench.DataGenerator \
+//         --projects=100000 --categories=50 --maxSteps=200 --maxMaterials=40 \
+//         --maxCategories=4 --skew=1.1 --threads=8 --clear
+public class DataGenerator {
+    static final String PREFIX = "gen-";
+
+    private final ProjectService service = new ProjectService();
+    private final int projectCount;
+    private final int maxSteps;
+    private final int maxMaterials;
+    private final int maxCategoriesPerProject;
+    private final Zipf stepCounts;
+    private final Zipf materialCounts;
+    private final Zipf categoryPopularity;
+    private final List<Integer> categoryIds;
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        new SchemaMigrator().migrate();
+        if (options.getBoolean("clear")) {
+            clear();
+        }
+
+        DataGenerator generator = new DataGenerator(options);
+        long start = System.nanoTime();
+        int threads = options.getInt("threads", 4);
+        generator.generate(threads);
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        System.out.println("Generated " + generator.projectCount + " projects in " + seconds + " s");
+        DbConnection.shutdown();
+    }
+
+    DataGenerator(Options options) {
+        double skew = options.getDouble("skew", 1.0);
+        this.projectCount = options.getInt("projects", 10_000);
+        this.maxSteps = options.getInt("maxSteps", 50);
+        this.maxMaterials = options.getInt("maxMaterials", 20);
+        this.maxCategoriesPerProject = options.getInt("maxCategories", 3);
+        this.stepCounts = new Zipf(maxSteps, skew);
+        this.materialCounts = new Zipf(maxMaterials, skew);
+
+        int categoryCount = options.getInt("categories", 20);
+        this.categoryIds = createCategories(categoryCount);
+        this.categoryPopularity = new Zipf(categoryCount, skew);
+    }
+
+    // Save every project with its children, spread over the given number of threads
+    void generate(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < projectCount) {
+                    service.saveProject(newProject(i));
+                    if ((i + 1) % 10_000 == 0) {
+                        System.out.println("  " + (i + 1) + " projects");
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while generating data", e);
+        }
+    }
+
+    private Project newProject(int index) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigDecimal estimated = BigDecimal.valueOf(random.nextInt(1, 400), 1);
+        BigDecimal actual = random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(1, 500), 1) : null;
+        Project project = new Project(String.format("%s%08d", PREFIX, index), estimated, actual,
+                random.nextInt(1, 6), notes(random.nextInt(0, 400)));
+
+        int steps = stepCounts.next();
+        for (int s = 1; s <= steps; s++) {
+            project.getSteps().add(new Step(null, "Step " + s + " of project " + index, null));
+        }
+
+        int materials = materialCounts.next() - 1;
+        for (int m = 1; m <= materials; m++) {
+            Material material = new Material();
+            material.setMaterialName("Material " + m);
+            material.setNumRequired(random.nextInt(1, 20));
+            material.setCost(BigDecimal.valueOf(random.nextInt(50, 50_000), 2));
+            project.getMaterials().add(material);
+        }
+
+        int categories = random.nextInt(0, maxCategoriesPerProject + 1);
+        List<Integer> chosen = new ArrayList<>();
+        for (int c = 0; c < categories; c++) {
+            Integer categoryId = categoryIds.get(categoryPopularity.next() - 1);
+            if (!chosen.contains(categoryId)) {
+                chosen.add(categoryId);
+                Category category = new Category();
+                category.setCategoryId(categoryId);
+                project.getCategories().add(category);
+            }
+        }
+        return project;
+    }
+
+    // Notes of roughly the given length, so the TEXT column has realistic sizes
+    private static String notes(int length) {
+        if (length == 0) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length) {
+            builder.append("lorem ipsum dolor ");
+        }
+        return builder.substring(0, length);
+    }
+
+    private static List<Integer> createCategories(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        String sql = "INSERT INTO category (category_name) VALUES (?)";
+
+        try (Connection conn = DbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < count; i++) {
+                stmt.setString(1, String.format("%scategory-%04d", PREFIX, i));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DbException("Could not create categories", e);
+        }
+        return ids;
+    }
+
+    // Remove generated projects and categories; child rows go with them by cascade. The
+    // link version is bumped so running applications reload category counts.
+    static void clear() {
+        try (Connection conn = DbConnection.getConnection();
+             PreparedStatement projects = conn.prepareStatement("DELETE FROM project WHERE project_name LIKE ?");
+             PreparedStatement categories = conn.prepareStatement("DELETE FROM category WHERE category_name LIKE ?");
+             PreparedStatement bump = conn.prepareStatement(BenchmarkData.LINK_VERSION_BUMP_SQL)) {
+            projects.setString(1, PREFIX + "%");
+            projects.executeUpdate();
+            categories.setString(1, PREFIX + "%");
+            categories.executeUpdate();
+            bump.executeUpdate();
+        } catch (SQLException e) {
+            throw new DbException("Could not clear generated data", e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import projects.dao.AggregateLoadMode;
+import projects.dao.DbConnection;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.metrics.LatencyHistogram;
+import projects.service.ProjectService;
+
+// Replays a mixed workload against the projects generated by DataGenerator and reports
+// throughput and latency percentiles per operation.
+//
+// In closed-loop mode (the default) each of --threads workers issues its next request as
+// soon as the previous one returns, which finds the maximum throughput. In open-loop mode
+// requests are started at a fixed --rate per second whether or not earlier ones have
+// finished, and latency is measured from when each request was due to start. That way a
+// stall shows up as queueing delay on every request behind it instead of hiding as a
+// pause in the request stream (coordinated omission).
+//
+//     java -cp target/benchmarks.jar projects.bench.LoadDriver \
+//         --mode=open --rate=2000 --threads=32 --duration=60 --warmup=10 \
+//         --mix=get:70,page:10,append:10,update:10 --skew=1.0 --cache
+public class LoadDriver {
+    enum Operation {
+        GET, PAGE, APPEND, UPDATE
+    }
+
+    private static final int PAGE_SIZE = 50;
+
+    private final ProjectService service = new ProjectService();
+    private final List<Integer> projectIds;
+    private final Zipf projectPopularity;
+    private final Operation[] mix;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        LoadDriver driver = new LoadDriver(options);
+
+        int threads = options.getInt("threads", 16);
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.getInt("warmup", 5));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getInt("duration", 30));
+        boolean open = "open".equals(options.get("mode", "closed"));
+        double rate = options.getDouble("rate", 1000);
+
+        System.out.println("Warming up...");
+        driver.run(open, threads, rate, warmupNanos);
+        driver.reset();
+
+        System.out.println("Measuring...");
+        long start = System.nanoTime();
+        driver.run(open, threads, rate, durationNanos);
+        driver.report(System.nanoTime() - start);
+
+        driver.service.shutdown();
+    }
+
+    LoadDriver(Options options) {
+        this.projectIds = generatedProjectIds();
+        if (projectIds.isEmpty()) {
+            throw new IllegalStateException("No generated projects found, run DataGenerator first");
+        }
+        this.projectPopularity = new Zipf(projectIds.size(), options.getDouble("skew", 1.0));
+        this.mix = parseMix(options.get("mix", "get:70,page:10,append:10,update:10"));
+
+        service.setLoadMode(AggregateLoadMode.valueOf(options.get("loadMode", "BATCHED")));
+        if (options.getBoolean("cache")) {
+            service.enableCache(options.getInt("cacheSize", 10_000), TimeUnit.MINUTES.toMillis(5));
+        }
+
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    // Issue requests for the given time, in closed- or open-loop mode
+    void run(boolean open, int threads, double rate, long durationNanos) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long end = System.nanoTime() + durationNanos;
+
+        if (open) {
+            // Request n is due at start + n * interval; a late dispatcher catches up in a burst
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            long due = System.nanoTime();
+            while (due < end) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long intendedStart = due;
+                workers.execute(() -> execute(nextOperation(), intendedStart));
+                due += interval;
+            }
+        } else {
+            for (int t = 0; t < threads; t++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        execute(nextOperation(), System.nanoTime());
+                    }
+                });
+            }
+        }
+
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while running the workload", e);
+        }
+        service.flushWrites();
+    }
+
+    private void execute(Operation operation, long startNanos) {
+        try {
+            switch (operation) {
+                case GET:
+                    service.getProject(nextProjectId());
+                    break;
+                case PAGE:
+                    service.getProjectPage(null, PAGE_SIZE);
+                    break;
+                case APPEND:
+                    service.addStep(new Step(nextProjectId(), "Load step", null));
+                    break;
+                case UPDATE:
+                    service.updateProject(updatedProject(nextProjectId()));
+                    break;
+            }
+        } catch (RuntimeException e) {
+            errors.get(operation).incrementAndGet();
+        }
+        latencies.get(operation).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    private Project updatedProject(Integer projectId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Project project = new Project(String.format("%supdated-%08d", DataGenerator.PREFIX, projectId),
+                BigDecimal.valueOf(random.nextInt(1, 400), 1), BigDecimal.valueOf(random.nextInt(1, 500), 1),
+                random.nextInt(1, 6), "Updated by the load driver");
+        project.setProjectId(projectId);
+        return project;
+    }
+
+    private Operation nextOperation() {
+        return mix[ThreadLocalRandom.current().nextInt(mix.length)];
+    }
+
+    // Popular projects are chosen more often, in the order the generator created them
+    private Integer nextProjectId() {
+        return projectIds.get(projectPopularity.next() - 1);
+    }
+
+    void reset() {
+        latencies.values().forEach(LatencyHistogram::reset);
+        errors.values().forEach(count -> count.set(0));
+    }
+
+    void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            total += histogram.getCount();
+            System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(), histogram.getCount(), errors.get(operation).get(),
+                    histogram.getCount() / seconds,
+                    histogram.getPercentileMicros(50.0) / 1000.0, histogram.getPercentileMicros(95.0) / 1000.0,
+                    histogram.getPercentileMicros(99.0) / 1000.0, histogram.getPercentileMicros(99.9) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0);
+        }
+        System.out.printf("total    %10d %8s %10.1f%n", total, "", total / seconds);
+    }
+
+    // "get:70,page:10" becomes a 100-slot table with 70 GETs and 10 PAGEs, sampled uniformly
+    private static Operation[] parseMix(String spec) {
+        List<Operation> table = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight but got " + part);
+            }
+            Operation operation = Operation.valueOf(pair[0].trim().toUpperCase());
+            for (int i = Integer.parseInt(pair[1].trim()); i > 0; i--) {
+                table.add(operation);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The workload mix is empty");
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    private static List<Integer> generatedProjectIds() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT project_id FROM project WHERE project_name LIKE ? ORDER BY project_id";
+
+        try (Connection conn = DbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, DataGenerator.PREFIX + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DbException("Could not read generated project IDs", e);
+        }
+        return ids;
+    }
+}
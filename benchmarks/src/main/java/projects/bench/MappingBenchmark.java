@@ -0,0 +1,61 @@
+package projects.bench;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import projects.entity.Project;
+import provided.util.DaoBase;
+
+// DaoBase.extract against the hand-written mapping ProjectDao uses, over in-memory rows
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark extends DaoBase {
+    @Param({ "1", "100", "10000" })
+    public int rows;
+
+    private Object[][] data;
+
+    @Setup
+    public void setUp() {
+        data = StubResultSet.projectRows(rows);
+    }
+
+    @Benchmark
+    public void extract(Blackhole blackhole) throws SQLException {
+        ResultSet rs = StubResultSet.over(StubResultSet.PROJECT_COLUMNS, data);
+        while (rs.next()) {
+            blackhole.consume(extract(rs, Project.class));
+        }
+    }
+
+    @Benchmark
+    public void handWritten(Blackhole blackhole) throws SQLException {
+        ResultSet rs = StubResultSet.over(StubResultSet.PROJECT_COLUMNS, data);
+        while (rs.next()) {
+            Project project = new Project();
+            project.setProjectId(rs.getInt("project_id"));
+            project.setProjectName(rs.getString("project_name"));
+            project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
+            project.setActualHours(rs.getBigDecimal("actual_hours"));
+            project.setDifficulty(rs.getInt("difficulty"));
+            project.setNotes(rs.getString("notes"));
+            blackhole.consume(project);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package projects.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.dao.AggregateLoadMode;
+import projects.dao.DbConnection;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.Step;
+import projects.service.ProjectService;
+
+// DAO and service paths against the database configured in DbConnection (a local MySQL
+// or MariaDB with the projects schema). tableSize benchmark projects are seeded before
+// the first trial, each with BenchmarkData.STEPS_PER_PROJECT steps and
+// BenchmarkData.MATERIALS_PER_PROJECT materials.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectDaoBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({ "100", "1000", "10000" })
+    public int tableSize;
+
+    private List<Integer> projectIds;
+    private final ProjectDao batchedDao = new ProjectDao();
+    private final ProjectDao sequentialDao = new ProjectDao();
+    private final ProjectDao concurrentDao = new ProjectDao();
+    private final ProjectService cachedService = new ProjectService();
+    private Integer scratchProjectId;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        projectIds = BenchmarkData.seed(tableSize);
+        batchedDao.setLoadMode(AggregateLoadMode.BATCHED);
+        sequentialDao.setLoadMode(AggregateLoadMode.SEQUENTIAL);
+        concurrentDao.setLoadMode(AggregateLoadMode.CONCURRENT);
+        cachedService.enableCache(tableSize, TimeUnit.HOURS.toMillis(1));
+        cachedService.getProject(projectIds.get(0));
+    }
+
+    // Inserts go to their own project so they don't change the size of the seeded ones.
+    // It is recreated every iteration so the step inserts don't run against a step table
+    // and a step_order range that keep growing over the run.
+    @Setup(Level.Iteration)
+    public void createScratchProject() {
+        Project scratch = new Project(BenchmarkData.PREFIX + "scratch", null, null, null, null);
+        batchedDao.addProject(scratch);
+        scratchProjectId = scratch.getProjectId();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteScratchProject() {
+        batchedDao.deleteProject(scratchProjectId);
+        scratchProjectId = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DbConnection.shutdown();
+    }
+
+    private Integer randomProjectId() {
+        return projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+    }
+
+    @Benchmark
+    public Project getProjectBatched() {
+        return batchedDao.getProject(randomProjectId());
+    }
+
+    @Benchmark
+    public Project getProjectSequential() {
+        return sequentialDao.getProject(randomProjectId());
+    }
+
+    @Benchmark
+    public Project getProjectConcurrent() {
+        return concurrentDao.getProject(randomProjectId());
+    }
+
+    @Benchmark
+    public Project getProjectCacheHit() {
+        return cachedService.getProject(projectIds.get(0));
+    }
+
+    @Benchmark
+    public List<Project> getProjectsBulk() {
+        int from = ThreadLocalRandom.current().nextInt(Math.max(1, projectIds.size() - BATCH_SIZE));
+        return batchedDao.getProjects(projectIds.subList(from, Math.min(from + BATCH_SIZE, projectIds.size())));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Project> getAllProjects() {
+        return batchedDao.getAllProjects();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long streamAllProjects() {
+        try (Stream<Project> projects = batchedDao.streamAllProjects()) {
+            return projects.count();
+        }
+    }
+
+    @Benchmark
+    public ProjectPage getFirstPage() {
+        return batchedDao.getProjectPage(null, 50);
+    }
+
+    @Benchmark
+    public void addStepsOneByOne() {
+        for (Step step : newSteps()) {
+            batchedDao.addStep(step);
+        }
+    }
+
+    @Benchmark
+    public void addStepsBatched() {
+        batchedDao.addSteps(newSteps());
+    }
+
+    private List<Step> newSteps() {
+        List<Step> steps = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            steps.add(new Step(scratchProjectId, "Benchmark step " + i, i + 1));
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,85 @@
+package projects.bench;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+// An in-memory, forward-only ResultSet over project rows, so row mapping can be
+// measured without a database. Only the methods the mappers call are supported.
+final class StubResultSet {
+    static final String[] PROJECT_COLUMNS = {
+        "project_id", "project_name", "estimated_hours", "actual_hours", "difficulty", "notes"
+    };
+
+    private StubResultSet() {
+    }
+
+    // Rows shaped like the project table
+    static Object[][] projectRows(int count) {
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[] {
+                i + 1, "Project " + (i + 1), new BigDecimal("12.50"), new BigDecimal("10.00"), i % 5 + 1,
+                "Notes for project " + (i + 1)
+            };
+        }
+        return rows;
+    }
+
+    static ResultSet over(String[] columns, Object[][] rows) {
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(StubResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return columns.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return columns[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        int[] row = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(StubResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < rows.length;
+                        case "getMetaData":
+                            return meta;
+                        case "getObject":
+                        case "getInt":
+                        case "getString":
+                        case "getBigDecimal":
+                            Object value = rows[row[0]][columnIndex(columns, args[0])];
+                            if (method.getName().equals("getInt")) {
+                                return value == null ? 0 : value;
+                            }
+                            return value;
+                        case "close":
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static int columnIndex(String[] columns, Object column) throws SQLException {
+        if (column instanceof Integer) {
+            return (Integer) column - 1;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase((String) column)) {
+                return i;
+            }
+        }
+        throw new SQLException("Column '" + column + "' not found");
+    }
+}
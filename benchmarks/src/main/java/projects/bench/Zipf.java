@@ -0,0 +1,32 @@
+package projects.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Samples ranks 1..n where rank k has probability proportional to 1 / k^skew. A skew of
+// 0 is uniform; around 1 a few ranks take most of the draws, as real traffic tends to.
+final class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double skew) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf needs at least one rank");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int k = 1; k <= n; k++) {
+            total += 1.0 / Math.pow(k, skew);
+            cumulative[k - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    // A rank from 1 to n
+    int next() {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cumulative, draw);
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+}
@@ -4,17 +4,30 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Scanner;
 import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
 import projects.entity.Step;
+import projects.exception.ProjectConflictException;
+import projects.search.SearchHit;
 import projects.service.ProjectService;
 
 public class ProjectsApp {
+    private static final int LIST_PAGE_SIZE = 50;
+    private static final int CACHE_SIZE = 100;
+    private static final long CACHE_TTL_MILLIS = 5 * 60_000;
+    private static final int SEARCH_RESULTS = 20;
+
     private Scanner scanner = new Scanner(System.in);
     private ProjectService service = new ProjectService();
     private Project currentProject = null;
 
     public static void main(String[] args) {
         System.out.println("Starting Project Manager Application");
-        new ProjectsApp().runApplication();
+        ProjectsApp app = new ProjectsApp();
+        app.service.migrateSchema();
+        app.service.enableCache(CACHE_SIZE, CACHE_TTL_MILLIS);
+        app.service.enableSearch();
+        app.runApplication();
     }
 
     private void runApplication() {
@@ -28,6 +41,7 @@ public class ProjectsApp {
                 switch (userChoice) {
                     case 0:
                         keepRunning = false;
+                        service.shutdown();
                         System.out.println("Goodbye! Thanks for using Project Manager!");
                         break;
                     case 1:
@@ -51,6 +65,9 @@ public class ProjectsApp {
                     case 7:
                         deleteProject();
                         break;
+                    case 8:
+                        searchProjects();
+                        break;
                     default:
                         System.out.println("That's not a valid option. Please try again.");
                         break;
@@ -82,6 +99,7 @@ public class ProjectsApp {
         System.out.println("5) View project details");
         System.out.println("6) Update project details");
         System.out.println("7) Delete a project");
+        System.out.println("8) Search projects");
         System.out.println("0) Exit");
         System.out.println("==================================================");
         System.out.print("Your choice: ");
@@ -156,23 +174,60 @@ public class ProjectsApp {
         System.out.println("\nAll Projects");
         System.out.println("------------------------------");
         
-        List<Project> allProjects = service.getAllProjects();
+        ProjectPage page = service.getProjectPage(null, LIST_PAGE_SIZE);
         
-        if (allProjects.isEmpty()) {
+        if (page.getProjects().isEmpty()) {
             System.out.println("No projects found. Why not add one?");
             return;
         }
         
-        System.out.printf("%-5s %-30s %-12s %-10s%n", "ID", "Project Name", "Est. Hours", "Difficulty");
-        System.out.println("------------------------------------------------------------");
+        System.out.printf("%-5s %-30s %-12s %-10s %-6s %-10s%n", "ID", "Project Name", "Est. Hours", "Difficulty", "Steps", "Cost");
+        System.out.println("-------------------------------------------------------------------------------");
+        
+        // Show one page at a time and fetch the next one, starting after the last project
+        // shown, only when the user asks for it
+        while (true) {
+            for (ProjectSummary project : page.getProjects()) {
+                System.out.printf("%-5d %-30s %-12s %-10s %-6d %-10s%n",
+                    project.getProjectId(),
+                    project.getProjectName(),
+                    project.getEstimatedHours() != null ? project.getEstimatedHours().toString() : "Not set",
+                    project.getDifficulty() != null ? project.getDifficulty().toString() : "Not set",
+                    project.getStepCount(),
+                    project.getTotalCost().toPlainString()
+                );
+            }
+            if (!page.hasNextPage()) {
+                break;
+            }
+            String more = getTextInput("Press Enter for more projects, or type q to stop: ");
+            if (!more.isEmpty()) {
+                break;
+            }
+            page = service.getProjectPage(page.getNextPageToken(), LIST_PAGE_SIZE);
+        }
+    }
+
+    private void searchProjects() {
+        System.out.println("\nSearch Projects");
+        System.out.println("------------------------------");
         
-        for (Project project : allProjects) {
-            System.out.printf("%-5d %-30s %-12s %-10s%n",
-                project.getProjectId(),
-                project.getProjectName(),
-                project.getEstimatedHours() != null ? project.getEstimatedHours().toString() : "Not set",
-                project.getDifficulty() != null ? project.getDifficulty().toString() : "Not set"
-            );
+        String query = getTextInput("Search for: ");
+        if (query.isEmpty()) {
+            System.out.println("Please enter something to search for.");
+            return;
+        }
+        
+        List<SearchHit> hits = service.search(query, SEARCH_RESULTS);
+        if (hits.isEmpty()) {
+            System.out.println("No projects match \"" + query + "\".");
+            return;
+        }
+        
+        System.out.printf("%-5s %-30s%n", "ID", "Project Name");
+        System.out.println("------------------------------------");
+        for (SearchHit hit : hits) {
+            System.out.printf("%-5d %-30s%n", hit.getProjectId(), hit.getProjectName());
         }
     }
 
@@ -223,12 +278,18 @@ public class ProjectsApp {
             return;
         }
         
-        int nextStepNumber = existingSteps.size() + 1;
+        Step newStep = new Step(currentProject.getProjectId(), stepText, null);
+        String afterInput = existingSteps.isEmpty() ? ""
+                : getTextInput("Insert after step ID (0 for first, Enter for last): ");
         
-        Step newStep = new Step(currentProject.getProjectId(), stepText, nextStepNumber);
-        service.addStep(newStep);
+        if (afterInput.isEmpty()) {
+            service.addStep(newStep);
+        } else {
+            int afterStepId = Integer.parseInt(afterInput);
+            service.insertStep(newStep, afterStepId == 0 ? null : afterStepId);
+        }
         
-        System.out.println("Step " + nextStepNumber + " added successfully!");
+        System.out.println("Step added successfully!");
     }
 
     private void viewProjectDetails() {
@@ -320,7 +381,19 @@ public class ProjectsApp {
             currentProject.setNotes(newNotes);
         }
         
-        service.updateProject(currentProject);
+        if (!currentProject.isDirty()) {
+            System.out.println("Nothing changed.");
+            return;
+        }
+        
+        try {
+            service.updateProject(currentProject);
+        } catch (ProjectConflictException e) {
+            System.out.println("Someone else changed this project while you were editing it.");
+            System.out.println("Your changes were not saved. The latest version has been reloaded.");
+            currentProject = service.getProject(currentProject.getProjectId());
+            return;
+        }
         
         System.out.println("Project updated successfully!");
     }
@@ -0,0 +1,16 @@
+package projects.dao;
+
+// How ProjectDao.getProject loads a project together with its steps, materials and categories
+public enum AggregateLoadMode {
+    // One query per table, run one after another on the same connection
+    SEQUENTIAL,
+
+    // All four queries sent as one multi-statement round trip, read back as separate result sets
+    BATCHED,
+
+    // One query per table, run at the same time on separate pooled connections. Each load
+    // holds four connections, so together these loads use at most half the pool; a load
+    // that would go over runs BATCHED instead. Opt-in: BATCHED is the default and costs
+    // one connection and one round trip.
+    CONCURRENT
+}
@@ -0,0 +1,345 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import projects.entity.Category;
+import projects.entity.CategoryCount;
+import projects.exception.DbException;
+import projects.log.Log;
+import projects.log.Logger;
+
+// The category table held in memory. Category is a small reference table that hardly
+// ever changes, so ProjectDao reads only category IDs from project_category and looks
+// the names up here instead of joining category on every load.
+//
+// The dictionary is an immutable snapshot that is swapped out whole on refresh. It is
+// loaded on first use and reloaded when an unknown category ID turns up, or when a cheap
+// fingerprint of the table (row count plus a checksum of IDs and names), checked at most
+// every CHECK_INTERVAL_MILLIS, shows the table has changed.
+//
+// It also keeps the number of projects in each category for faceted listings. The counts
+// are taken with one GROUP BY when the snapshot is loaded and then kept up to date by
+// ProjectDao as it links and deletes projects, so reading them costs no query.
+//
+// Every transaction that adds or removes links bumps the single row of
+// project_category_version just before it commits, so each link change has its own
+// version number. The counts remember the version they were read at. A change counted
+// here is applied only if it is newer than that, so a reload can neither lose nor double
+// count a change that commits while the GROUP BY runs, and link writers never wait for
+// a reload. The fingerprint check also reads the version: when it has moved further than
+// the changes counted here, another application instance changed links and the counts
+// are reloaded. Links changed by hand don't bump the version; call refresh() after that.
+public class CategoryDictionary {
+    private static final Logger LOG = Log.getLogger(CategoryDictionary.class);
+    private static final CategoryDictionary INSTANCE = new CategoryDictionary();
+
+    private static final long CHECK_INTERVAL_MILLIS = 30_000;
+
+    private static final String CATEGORY_SQL = "SELECT category_id, category_name FROM category";
+    private static final String FINGERPRINT_SQL = "SELECT COUNT(*), COALESCE(SUM(CRC32(CONCAT(category_id, ':', category_name))), 0), "
+            + "(SELECT version FROM project_category_version WHERE id = 1) FROM category";
+    private static final String LINK_VERSION_SQL = "SELECT version FROM project_category_version WHERE id = 1";
+    private static final String LINK_VERSION_BUMP_SQL = "UPDATE project_category_version SET version = version + 1 WHERE id = 1";
+    private static final String COUNTS_SQL = "SELECT category_id, COUNT(*) FROM project_category GROUP BY category_id";
+
+    private volatile Snapshot snapshot = null;
+    private volatile long checkedAt = 0;
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    // The counts and the link changes counted since they were read (guarded by this)
+    private Counts counts = new Counts(new HashMap<>(), 0);
+    private int changesSinceLoad = 0;
+    // While a reload reads the counts, changes are also kept here to apply to the result
+    // (guarded by this; null when no reload is running)
+    private List<LinkChange> changesDuringReload = null;
+
+    // Only one reload of the counts runs at a time
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    public static CategoryDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    private CategoryDictionary() {
+    }
+
+    // Every category, ordered by name
+    public List<Category> getCategories() {
+        Snapshot current = current();
+        List<Category> categories = new ArrayList<>();
+        for (Category category : current.byId.values()) {
+            categories.add(copy(category));
+        }
+        categories.sort(Comparator.comparing(Category::getCategoryName));
+        return categories;
+    }
+
+    // The number of projects in each category, most projects first
+    public List<CategoryCount> getProjectCounts() {
+        Snapshot current = current();
+        List<CategoryCount> facets = new ArrayList<>();
+        synchronized (this) {
+            for (Category category : current.byId.values()) {
+                facets.add(new CategoryCount(category.getCategoryId(), category.getCategoryName(),
+                        counts.byCategory.getOrDefault(category.getCategoryId(), 0)));
+            }
+        }
+        facets.sort(Comparator.comparingInt(CategoryCount::getProjectCount).reversed()
+                .thenComparing(CategoryCount::getCategoryName));
+        return facets;
+    }
+
+    // Reload the categories and counts now, e.g. after categories or links were edited
+    // outside this application
+    public void refresh() {
+        try (Connection conn = DbConnection.getConnection()) {
+            load(conn);
+        } catch (SQLException e) {
+            throw new DbException("Could not load categories", e);
+        }
+    }
+
+    // The category with the given ID, as a new object the caller may change. Reloads once
+    // if the ID is unknown, in case the category was added since the last load.
+    Category resolve(Connection conn, int categoryId) throws SQLException {
+        Snapshot current = current(conn);
+        Category category = current.byId.get(categoryId);
+        if (category == null) {
+            category = load(conn).byId.get(categoryId);
+        }
+        if (category == null) {
+            throw new DbException("Category with ID " + categoryId + " does not exist");
+        }
+        return copy(category);
+    }
+
+    // Bump the link version inside a transaction that adds or removes links, right before
+    // it commits. Returns the version to pass to countLinks.
+    long bumpLinkVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LINK_VERSION_BUMP_SQL)) {
+            stmt.executeUpdate();
+        }
+        return linkVersion(conn);
+    }
+
+    // Record that links to the given categories were added (delta 1) or removed (delta -1)
+    // by the transaction that committed the given link version
+    synchronized void countLinks(long version, List<Integer> categoryIds, int delta) {
+        LinkChange change = new LinkChange(version, categoryIds, delta);
+        if (changesDuringReload != null) {
+            changesDuringReload.add(change);
+        }
+        if (counts.apply(change)) {
+            changesSinceLoad++;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - checkedAt < CHECK_INTERVAL_MILLIS) {
+            return current;
+        }
+        try (Connection conn = DbConnection.getConnection()) {
+            return current(conn);
+        } catch (SQLException e) {
+            throw new DbException("Could not load categories", e);
+        }
+    }
+
+    // The snapshot, loading it if there is none yet or its fingerprint is out of date.
+    // Only one thread checks at a time; the others use the snapshot they have.
+    private Snapshot current(Connection conn) throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return load(conn);
+        }
+        if (System.currentTimeMillis() - checkedAt < CHECK_INTERVAL_MILLIS || !checking.compareAndSet(false, true)) {
+            return current;
+        }
+
+        try {
+            checkedAt = System.currentTimeMillis();
+            long linkVersion;
+            try (PreparedStatement stmt = conn.prepareStatement(FINGERPRINT_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                if (rs.getLong(1) * 31 + rs.getLong(2) != current.fingerprint) {
+                    LOG.debug("Category table changed, reloading");
+                    return load(conn);
+                }
+                linkVersion = rs.getLong(3);
+            }
+
+            synchronized (this) {
+                // A change counted here that hasn't been counted yet looks like an outside
+                // one; the reload is then unneeded but harmless
+                if (linkVersion - counts.version <= changesSinceLoad) {
+                    return current;
+                }
+            }
+            LOG.debug("Category links changed elsewhere, reloading counts");
+            loadCounts(conn);
+            return current;
+
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    private Snapshot load(Connection conn) throws SQLException {
+        long fingerprint;
+        try (PreparedStatement stmt = conn.prepareStatement(FINGERPRINT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            fingerprint = rs.getLong(1) * 31 + rs.getLong(2);
+        }
+        Snapshot loaded = new Snapshot(loadCategories(conn), fingerprint);
+        loadCounts(conn);
+        snapshot = loaded;
+        checkedAt = System.currentTimeMillis();
+        LOG.debug("Loaded {} categories", loaded.byId.size());
+        return loaded;
+    }
+
+    private static Map<Integer, Category> loadCategories(Connection conn) throws SQLException {
+        Map<Integer, Category> byId = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(CATEGORY_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Category category = new Category();
+                category.setCategoryId(rs.getInt(1));
+                category.setCategoryName(rs.getString(2));
+                byId.put(category.getCategoryId(), category);
+            }
+        }
+        return Collections.unmodifiableMap(byId);
+    }
+
+    // Replace the counts. The version and the counts are read in one transaction, so they
+    // come from the same snapshot: the counts include exactly the changes up to that
+    // version. Changes counted while the query runs are applied afterwards if newer.
+    private void loadCounts(Connection conn) throws SQLException {
+        reloadLock.lock();
+        try {
+            synchronized (this) {
+                changesDuringReload = new ArrayList<>();
+            }
+
+            Map<Integer, Integer> byCategory = new HashMap<>();
+            long version;
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                version = linkVersion(conn);
+                try (PreparedStatement stmt = conn.prepareStatement(COUNTS_SQL);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        byCategory.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            } finally {
+                if (autoCommit) {
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                }
+            }
+
+            synchronized (this) {
+                Counts loaded = new Counts(byCategory, version);
+                changesSinceLoad = 0;
+                for (LinkChange change : changesDuringReload) {
+                    if (loaded.apply(change)) {
+                        changesSinceLoad++;
+                    }
+                }
+                counts = loaded;
+            }
+
+        } finally {
+            synchronized (this) {
+                changesDuringReload = null;
+            }
+            reloadLock.unlock();
+        }
+    }
+
+    private static long linkVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LINK_VERSION_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Category copy(Category category) {
+        Category copy = new Category();
+        copy.setCategoryId(category.getCategoryId());
+        copy.setCategoryName(category.getCategoryName());
+        return copy;
+    }
+
+    private static final class Snapshot {
+        private final Map<Integer, Category> byId;
+        private final long fingerprint;
+
+        private Snapshot(Map<Integer, Category> byId, long fingerprint) {
+            this.byId = byId;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    // Project counts by category as of a link version, plus the changes applied since
+    private static final class Counts {
+        private final Map<Integer, Integer> byCategory;
+        private final long version;
+
+        private Counts(Map<Integer, Integer> byCategory, long version) {
+            this.byCategory = byCategory;
+            this.version = version;
+        }
+
+        // Apply the change unless the counts were read after it committed
+        private boolean apply(LinkChange change) {
+            if (change.version <= version) {
+                return false;
+            }
+            for (Integer categoryId : change.categoryIds) {
+                byCategory.merge(categoryId, change.delta, Integer::sum);
+            }
+            return true;
+        }
+    }
+
+    // The links one transaction added or removed, and the link version it committed
+    private static final class LinkChange {
+        private final long version;
+        private final List<Integer> categoryIds;
+        private final int delta;
+
+        private LinkChange(long version, List<Integer> categoryIds, int delta) {
+            this.version = version;
+            this.categoryIds = categoryIds;
+            this.delta = delta;
+        }
+    }
+
+    // The dictionary's queries for QueryPlanVerifier. They read whole tables on purpose:
+    // category is small and the counts cover every link.
+    static List<QueryPlanVerifier.PlannedQuery> plannedQueries() {
+        return List.of(
+                QueryPlanVerifier.PlannedQuery.wholeTable("loadCategories", CATEGORY_SQL),
+                QueryPlanVerifier.PlannedQuery.wholeTable("categoryFingerprint", FINGERPRINT_SQL),
+                QueryPlanVerifier.PlannedQuery.indexed("linkVersion", LINK_VERSION_SQL),
+                QueryPlanVerifier.PlannedQuery.wholeTable("categoryCounts", COUNTS_SQL));
+    }
+}
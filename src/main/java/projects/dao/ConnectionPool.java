@@ -0,0 +1,353 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import projects.exception.DbException;
+import projects.log.Log;
+import projects.log.Logger;
+import projects.metrics.DaoMetrics;
+
+// A small bounded pool of MySQL connections. Callers borrow a connection and give it
+// back by calling close() on it, so the usual try-with-resources blocks in ProjectDao
+// work unchanged.
+public class ConnectionPool {
+    private static final Logger LOG = Log.getLogger(ConnectionPool.class);
+
+    // Connections used more recently than this are handed out without a ping
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    // 0 turns leak detection off, including the stack trace captured on every borrow
+    private final long leakThresholdMillis;
+
+    // One permit per connection that may exist, idle or borrowed
+    private final Semaphore permits;
+    // Idle connections, most recently used first so the warmest one is reused (guarded by this)
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+                          long maxLifetimeMillis, long leakThresholdMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, Math.min(idleTimeoutMillis, 30_000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection, waiting up to the borrow timeout if all of them are in use.
+    // The time taken is recorded as the connectionAcquire operation in DaoMetrics.
+    public Connection getConnection() {
+        return DaoMetrics.getInstance().measure(DaoMetrics.CONNECTION_ACQUIRE, op -> borrow());
+    }
+
+    private Connection borrow() {
+        if (closed) {
+            throw new DbException("Connection pool has been shut down");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new DbException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeUsableIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Close every idle connection and refuse further borrows. Borrowed connections are
+    // closed for real when they are returned.
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (this) {
+            for (PooledConnection pooled : idle) {
+                discard(pooled);
+            }
+            idle.clear();
+        }
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    // Pop idle connections until one passes the lifetime and validation checks
+    private PooledConnection takeUsableIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now) || !isValid(pooled, now)) {
+                discard(pooled);
+                continue;
+            }
+            return pooled;
+        }
+    }
+
+    private PooledConnection open() {
+        try {
+            Connection conn = DriverManager.getConnection(url);
+            try {
+                PooledConnection pooled = new PooledConnection(conn, conn.isReadOnly(),
+                        conn.getTransactionIsolation(), conn.getCatalog());
+                LOG.debug("Opened a new database connection");
+                return pooled;
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOG.error("Failed to connect to database: {}", e.getMessage());
+            throw new DbException("Cannot connect to database: " + e.getMessage());
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    private boolean isValid(PooledConnection pooled, long now) {
+        if (now - pooled.lastUsedAt < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Called when a borrower closes its handle
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            boolean reusable = !closed && !isExpired(pooled, System.currentTimeMillis()) && reset(pooled);
+            if (reusable) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                synchronized (this) {
+                    idle.addFirst(pooled);
+                }
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Undo anything a borrower may have left behind so the next borrower starts clean.
+    // Settings changed through the handle are put back to what the connection was opened
+    // with.
+    private boolean reset(PooledConnection pooled) {
+        Connection conn = pooled.conn;
+        try {
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (pooled.settingsChanged) {
+                conn.setReadOnly(pooled.defaultReadOnly);
+                conn.setTransactionIsolation(pooled.defaultIsolation);
+                conn.setCatalog(pooled.defaultCatalog);
+                pooled.settingsChanged = false;
+            }
+            conn.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.conn.close();
+        } catch (SQLException e) {
+            // Nothing useful to do, the connection is being thrown away anyway
+        }
+    }
+
+    // Evict idle or expired connections and report borrowers that have held on too long
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (isExpired(pooled, now) || now - pooled.lastUsedAt >= idleTimeoutMillis) {
+                    it.remove();
+                    discard(pooled);
+                }
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt >= leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    String message = "Possible connection leak: connection held for " + (now - pooled.borrowedAt) + " ms";
+                    if (pooled.borrowSite != null) {
+                        LOG.warn(message, pooled.borrowSite);
+                    } else {
+                        LOG.warn(message);
+                    }
+                }
+            }
+        }
+    }
+
+    // A physical connection plus the bookkeeping the pool needs for it
+    private class PooledConnection {
+        private final Connection conn;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastUsedAt = createdAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        // Session settings as opened, restored on return if a borrower changed them
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private final String defaultCatalog;
+        private volatile boolean settingsChanged;
+
+        private PooledConnection(Connection conn, boolean defaultReadOnly, int defaultIsolation,
+                                 String defaultCatalog) {
+            this.conn = conn;
+            this.defaultReadOnly = defaultReadOnly;
+            this.defaultIsolation = defaultIsolation;
+            this.defaultCatalog = defaultCatalog;
+        }
+
+        // Each borrow gets its own handle so closing a stale handle twice can't return
+        // the connection to the pool twice
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    // Hands calls on to the physical connection until the borrower closes it. The physical
+    // connection itself is never handed out, so it can't be closed behind the pool's back.
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        // Closed from whichever thread the borrower happens to use
+        private final AtomicBoolean handleClosed = new AtomicBoolean();
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (handleClosed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed.get() || pooled.conn.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.conn;
+                default:
+                    break;
+            }
+
+            if (handleClosed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            switch (method.getName()) {
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("A pooled connection can't be unwrapped to " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    pooled.settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(pooled.conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
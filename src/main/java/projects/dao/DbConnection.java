@@ -1,9 +1,6 @@
 package projects.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import projects.exception.DbException;
 
 public class DbConnection {
     // Database connection details
@@ -12,19 +9,50 @@ public class DbConnection {
     private static final String DATABASE = "projects";
     private static final String USERNAME = "student";
     private static final String PASSWORD = "student";
-    
+
+    // Prepared statement settings. Statements are prepared on the server once and kept in
+    // a per-connection LRU cache by the driver, so re-preparing the same SQL on a pooled
+    // connection skips the parse. SQL the server can't prepare (like multi-statement
+    // queries) is prepared on the client instead.
+    private static final boolean USE_SERVER_PREPARED_STATEMENTS = true;
+    private static final int STATEMENT_CACHE_SIZE = 250;
+    private static final int STATEMENT_CACHE_SQL_LIMIT = 2048;
+
     // Build the connection URL
-    private static final String URL = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE + 
-                                     "?user=" + USERNAME + "&password=" + PASSWORD + "&useSSL=false";
+    private static final String URL = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE +
+                                     "?user=" + USERNAME + "&password=" + PASSWORD + "&useSSL=false" +
+                                     "&allowMultiQueries=true&rewriteBatchedStatements=true" +
+                                     "&useServerPrepStmts=" + USE_SERVER_PREPARED_STATEMENTS +
+                                     "&cachePrepStmts=true" +
+                                     "&prepStmtCacheSize=" + STATEMENT_CACHE_SIZE +
+                                     "&prepStmtCacheSqlLimit=" + STATEMENT_CACHE_SQL_LIMIT;
+
+    // Connection pool settings
+    private static final int POOL_SIZE = 10;
+    private static final long BORROW_TIMEOUT_MILLIS = 30_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 10 * 60_000;
+    private static final long MAX_LIFETIME_MILLIS = 30 * 60_000;
+    // Leak detection records where every connection is borrowed, which costs a stack
+    // trace per borrow, so it is off unless -Dprojects.db.leakThresholdMillis=N is set.
+    // A connection held for N ms or more is then logged with the code that borrowed it.
+    private static final long LEAK_THRESHOLD_MILLIS = Long.getLong("projects.db.leakThresholdMillis", 0);
+
+    // Every DAO call borrows from this pool instead of opening a new connection
+    private static final ConnectionPool POOL = new ConnectionPool(URL, POOL_SIZE, BORROW_TIMEOUT_MILLIS,
+            IDLE_TIMEOUT_MILLIS, MAX_LIFETIME_MILLIS, LEAK_THRESHOLD_MILLIS);
 
+    // Borrow a connection. Closing it gives it back to the pool.
     public static Connection getConnection() {
-        try {
-            Connection conn = DriverManager.getConnection(URL);
-            System.out.println("✓ Connected to database successfully!");
-            return conn;
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to connect to database!");
-            throw new DbException("Cannot connect to database: " + e.getMessage());
-        }
+        return POOL.getConnection();
+    }
+
+    // The most connections the pool holds
+    static int getPoolSize() {
+        return POOL_SIZE;
+    }
+
+    // Close all pooled connections, used when the application exits
+    public static void shutdown() {
+        POOL.shutdown();
     }
-}
\ No newline at end of file
+}
@@ -1,294 +1,1767 @@
 package projects.dao;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectUpdate;
 import projects.entity.Step;
 import projects.entity.Material;
 import projects.entity.Category;
+import projects.entity.CategoryCount;
 import projects.exception.DbException;
+import projects.exception.ProjectConflictException;
+import projects.log.Log;
+import projects.log.Logger;
+import projects.metrics.DaoMetrics;
+import projects.metrics.OperationMetrics;
+import provided.util.DaoBase;
 
-public class ProjectDao {
+public class ProjectDao extends DaoBase {
+    private static final Logger LOG = Log.getLogger(ProjectDao.class);
 
-    // Add a new project to the database
+    // Queries used to load a project and its children
+    // Listing columns: the project row without notes, rollups included
+    private static final String SUMMARY_COLUMNS = "SELECT project_id, project_name, estimated_hours, actual_hours, "
+            + "difficulty, step_count, material_count, total_cost FROM project ";
+    private static final String PROJECT_SQL = "SELECT * FROM project WHERE project_id = ?";
+    // Every project by name. The hint makes MySQL walk the project_name index instead of
+    // sorting the whole table, so streamed rows start arriving straight away.
+    private static final String ALL_PROJECTS_SQL = "SELECT * FROM project FORCE INDEX FOR ORDER BY (project_name) ORDER BY project_name";
+    // Keyset pages by name and by total cost; see getProjectPage and getProjectPageByCost
+    private static final String NAME_PAGE_ORDER = " ORDER BY project_name, project_id LIMIT ?";
+    private static final String NAME_PAGE_FIRST_SQL = SUMMARY_COLUMNS + NAME_PAGE_ORDER;
+    private static final String NAME_PAGE_NEXT_SQL = SUMMARY_COLUMNS
+            + "WHERE project_name > ? OR (project_name = ? AND project_id > ?)" + NAME_PAGE_ORDER;
+    private static final String COST_PAGE_ORDER = " ORDER BY total_cost DESC, project_id LIMIT ?";
+    private static final String COST_PAGE_FIRST_SQL = SUMMARY_COLUMNS + COST_PAGE_ORDER;
+    private static final String COST_PAGE_NEXT_SQL = SUMMARY_COLUMNS
+            + "WHERE total_cost < ? OR (total_cost = ? AND project_id > ?)" + COST_PAGE_ORDER;
+    private static final String STEPS_SQL = "SELECT * FROM step WHERE project_id = ? ORDER BY step_order, step_id";
+    private static final String MATERIALS_SQL = "SELECT * FROM material WHERE project_id = ?";
+    // Only the IDs; names come from the in-memory CategoryDictionary
+    private static final String CATEGORIES_SQL = "SELECT category_id FROM project_category WHERE project_id = ?";
+
+    // The four queries above sent as one multi-statement round trip (needs allowMultiQueries)
+    private static final String AGGREGATE_SQL = PROJECT_SQL + "; " + STEPS_SQL + "; " + MATERIALS_SQL + "; " + CATEGORIES_SQL;
+
+    // Writes for the project and its child rows
+    private static final String PROJECT_INSERT_SQL = "INSERT INTO project (project_name, estimated_hours, actual_hours, difficulty, notes, version, step_count, material_count, total_cost) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?)";
+    // Project updates are built by projectUpdateSql from the fields that changed
+    private static final String PROJECT_EXISTS_SQL = "SELECT 1 FROM project WHERE project_id = ?";
+    private static final String STEP_INSERT_SQL = "INSERT INTO step (project_id, step_text, step_order) VALUES (?, ?, ?)";
+    // Like STEP_INSERT_SQL, but a null step order puts the step after the project's last
+    // step. MAX(step_order) is read from the (project_id, step_order) index in the same
+    // statement, so appending never counts or loads the existing steps.
+    private static final String STEP_APPEND_SQL = "INSERT INTO step (project_id, step_text, step_order) "
+            + "SELECT ?, ?, COALESCE(?, MAX(step_order) + " + StepOrder.GAP + ", " + StepOrder.GAP + ") "
+            + "FROM step WHERE project_id = ?";
+    private static final String MATERIAL_INSERT_SQL = "INSERT INTO material (project_id, material_name, num_required, cost) VALUES (?, ?, ?, ?)";
+    // Step count, material count and total material cost are kept on the project row so
+    // listings can show and sort by them without loading any children. Every child write
+    // below adjusts them in the same transaction as the child rows.
+    private static final String ROLLUP_UPDATE_SQL = "UPDATE project SET step_count = step_count + ?, material_count = material_count + ?, total_cost = total_cost + ? WHERE project_id = ?";
+    // Takes the material's cost off its project's rollups, then deletes it, in one round trip
+    private static final String MATERIAL_DELETE_SQL = "UPDATE project p JOIN material m ON m.project_id = p.project_id "
+            + "SET p.material_count = p.material_count - 1, p.total_cost = p.total_cost - COALESCE(m.num_required * m.cost, 0) "
+            + "WHERE m.material_id = ? AND m.project_id = ?; "
+            + "DELETE FROM material WHERE material_id = ? AND project_id = ?";
+    private static final String PROJECT_CATEGORY_INSERT_SQL = "INSERT INTO project_category (project_id, category_id) VALUES (?, ?)";
+    // Reads and locks the project's category links in the same round trip so the category
+    // counts can be adjusted for exactly the links the delete removes
+    private static final String PROJECT_DELETE_SQL = "SELECT category_id FROM project_category WHERE project_id = ? FOR UPDATE; "
+            + "DELETE FROM project WHERE project_id = ?";
+
+    // Step reordering. Each operation locks the project row so concurrent reorders of the
+    // same project can't pick the same gap.
+    private static final String PROJECT_LOCK_SQL = "SELECT project_id FROM project WHERE project_id = ? FOR UPDATE";
+    private static final String PROJECTS_LOCK_SQL = "SELECT project_id FROM project WHERE project_id IN (%s) ORDER BY project_id FOR UPDATE";
+    private static final String STEP_ORDER_SQL = "SELECT step_order FROM step WHERE step_id = ? AND project_id = ?";
+    private static final String NEXT_STEP_ORDER_SQL = "SELECT step_order FROM step WHERE project_id = ? AND step_id <> ? "
+            + "AND (step_order > ? OR (step_order = ? AND step_id > ?)) ORDER BY step_order, step_id LIMIT 1";
+    private static final String STEP_MOVE_SQL = "UPDATE step SET step_order = ? WHERE step_id = ? AND project_id = ?";
+    private static final String STEP_DELETE_SQL = "DELETE FROM step WHERE step_id = ? AND project_id = ?";
+    private static final String STEP_RENUMBER_SQL = "UPDATE step s JOIN (SELECT step_id, "
+            + "ROW_NUMBER() OVER (ORDER BY step_order, step_id) * " + StepOrder.GAP + " AS new_order "
+            + "FROM step WHERE project_id = ?) r ON s.step_id = r.step_id SET s.step_order = r.new_order";
+
+    // Maximum number of IDs bound into one IN (...) list by the bulk loaders
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    // Connections CONCURRENT aggregate loads may hold at once: half the pool, so fan-out
+    // can't starve everything else. A load that finds no room is run BATCHED instead.
+    private static final int CONCURRENT_QUERIES = 4;
+    private static final Semaphore CONCURRENT_CONNECTIONS = new Semaphore(
+            Math.max(CONCURRENT_QUERIES, DbConnection.getPoolSize() / 2));
+
+    // Runs the queries of CONCURRENT aggregate loads
+    private static final ExecutorService QUERY_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "project-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final DaoMetrics metrics = DaoMetrics.getInstance();
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+    private AggregateLoadMode loadMode = AggregateLoadMode.BATCHED;
+
+    // Add a new project to the database. The generated project ID is set on the project.
     public void addProject(Project project) {
-        // SQL command to insert a new project
-        String sql = "INSERT INTO project (project_name, estimated_hours, actual_hours, difficulty, notes) VALUES (?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        metrics.measureVoid("addProject", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                insertProject(conn, project, false);
+                op.addQueries(1);
+                op.addRowsWritten(1);
+                LOG.debug("Project added to database");
 
-            // Fill in the values
-            stmt.setString(1, project.getProjectName());
-            stmt.setBigDecimal(2, project.getEstimatedHours());
-            stmt.setBigDecimal(3, project.getActualHours());
-            
-            // Handle null difficulty
-            if (project.getDifficulty() != null) {
-                stmt.setInt(4, project.getDifficulty());
-            } else {
-                stmt.setNull(4, Types.INTEGER);
+            } catch (SQLException e) {
+                LOG.warn("Failed to add project: {}", e.getMessage());
+                throw new DbException("Could not add project", e);
             }
-            
-            stmt.setString(5, project.getNotes());
-            
-            // Execute the insert
+        });
+    }
+
+    // Save a project together with its steps, materials and category links in one
+    // transaction. Generated IDs are read from the inserts themselves and set on the
+    // project, its steps and its materials. Categories must already exist.
+    public void saveProject(Project project) {
+        metrics.measureVoid("saveProject", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    insertProject(conn, project, true);
+                    Integer projectId = project.getProjectId();
+
+                    int order = StepOrder.GAP;
+                    for (Step step : project.getSteps()) {
+                        step.setProjectId(projectId);
+                        if (step.getStepOrder() == null) {
+                            step.setStepOrder(order);
+                        }
+                        order += StepOrder.GAP;
+                    }
+                    for (Material material : project.getMaterials()) {
+                        material.setProjectId(projectId);
+                    }
+
+                    insertWithKeys(conn, STEP_INSERT_SQL, project.getSteps(), this::bindStep, Step::setStepId);
+                    insertWithKeys(conn, MATERIAL_INSERT_SQL, project.getMaterials(), this::bindMaterial,
+                            Material::setMaterialId);
+
+                    if (!project.getCategories().isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_CATEGORY_INSERT_SQL)) {
+                            addToBatch(stmt, project.getCategories(), (s, category) -> {
+                                setParameter(s, 1, projectId, Integer.class);
+                                setParameter(s, 2, category.getCategoryId(), Integer.class);
+                            });
+                            stmt.executeBatch();
+                        }
+                    }
+
+                    List<Integer> categoryIds = new ArrayList<>();
+                    for (Category category : project.getCategories()) {
+                        categoryIds.add(category.getCategoryId());
+                    }
+                    commitLinks(conn, categoryIds, 1);
+                    op.addQueries(1 + (project.getSteps().isEmpty() ? 0 : 1)
+                            + (project.getMaterials().isEmpty() ? 0 : 1)
+                            + (project.getCategories().isEmpty() ? 0 : 1));
+                    op.addRowsWritten(1 + project.getSteps().size() + project.getMaterials().size()
+                            + project.getCategories().size());
+                    LOG.debug("Project saved with {} children: {}", project.getSteps().size()
+                            + project.getMaterials().size() + project.getCategories().size(), project.getProjectName());
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    project.setProjectId(null);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to save project: {}", e.getMessage());
+                throw new DbException("Could not save project", e);
+            }
+        });
+    }
+
+    // Insert the project row and set its generated ID. With children, the rollups start at
+    // the totals of the project's steps and materials, which the caller inserts too.
+    private void insertProject(Connection conn, Project project, boolean withChildren) throws SQLException {
+        RollupDelta rollup = new RollupDelta();
+        if (withChildren) {
+            rollup.steps = project.getSteps().size();
+            for (Material material : project.getMaterials()) {
+                rollup.add(material);
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            setParameter(stmt, 1, project.getProjectName(), String.class);
+            setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+            setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+            setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+            setParameter(stmt, 5, project.getNotes(), String.class);
+            setParameter(stmt, 6, rollup.steps, Integer.class);
+            setParameter(stmt, 7, rollup.materials, Integer.class);
+            setParameter(stmt, 8, rollup.cost, BigDecimal.class);
             stmt.executeUpdate();
-            System.out.println("✓ Project added to database");
-            
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to add project: " + e.getMessage());
-            throw new DbException("Could not add project", e);
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No generated key returned for project");
+                }
+                project.setProjectId(keys.getInt(1));
+            }
+            project.setVersion(0);
+            project.markClean();
+        }
+    }
+
+    // Batch insert the items and hand each generated key back to its item, in order
+    private <T> void insertWithKeys(Connection conn, String sql, List<T> items, BatchBinder<T> binder,
+                                    BiConsumer<T, Integer> keySetter) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            addToBatch(stmt, items, binder);
+            stmt.executeBatch();
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (T item : items) {
+                    if (!keys.next()) {
+                        throw new SQLException("Fewer generated keys than inserted rows");
+                    }
+                    keySetter.accept(item, keys.getInt(1));
+                }
+            }
         }
     }
 
     // Get all projects from the database
     public List<Project> getAllProjects() {
-        // SQL command to get all projects
-        String sql = "SELECT * FROM project ORDER BY project_name";
-        List<Project> projects = new ArrayList<>();
+        return metrics.measure("getAllProjects", op -> {
+            // SQL command to get all projects
+            String sql = ALL_PROJECTS_SQL;
+            List<Project> projects = new ArrayList<>();
         
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            // Read each project from the results
-            while (rs.next()) {
-                Project project = new Project();
-                project.setProjectId(rs.getInt("project_id"));
-                project.setProjectName(rs.getString("project_name"));
-                project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
-                project.setActualHours(rs.getBigDecimal("actual_hours"));
-                project.setDifficulty(rs.getInt("difficulty"));
-                project.setNotes(rs.getString("notes"));
-                projects.add(project);
-            }
+            try (Connection conn = DbConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                // Read each project from the results
+                while (rs.next()) {
+                    projects.add(mapProject(rs));
+                }
+                op.addQueries(1);
+                op.addRowsRead(projects.size());
             
-            System.out.println("✓ Found " + projects.size() + " projects");
+                LOG.debug("Found {} projects", projects.size());
             
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to get projects: " + e.getMessage());
-            throw new DbException("Could not get projects", e);
-        }
+            } catch (SQLException e) {
+                LOG.warn("Failed to get projects: {}", e.getMessage());
+                throw new DbException("Could not get projects", e);
+            }
         
-        return projects;
+            return projects;
+        });
     }
 
-    // FIXED: Get one specific project by its ID
+    // Get one page of project summaries ordered by name. Uses keyset pagination on
+    // (project_name, project_id): each page seeks past the last row of the previous one,
+    // so every page costs the same no matter how deep into the listing it is.
+    // Pass a null token for the first page.
+    public ProjectPage getProjectPage(String pageToken, int pageSize) {
+        return metrics.measure("getProjectPage", op -> {
+            if (pageSize < 1) {
+                throw new DbException("Page size must be at least 1");
+            }
+
+            String sql = pageToken == null ? NAME_PAGE_FIRST_SQL : NAME_PAGE_NEXT_SQL;
+            List<ProjectSummary> summaries = new ArrayList<>();
+
+            try (Connection conn = DbConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                int index = 1;
+                if (pageToken != null) {
+                    String[] after = decodePageToken(pageToken);
+                    stmt.setString(index++, after[1]);
+                    stmt.setString(index++, after[1]);
+                    stmt.setInt(index++, Integer.parseInt(after[0]));
+                }
+                // Ask for one extra row to find out whether there is another page
+                stmt.setInt(index, pageSize + 1);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        summaries.add(mapProjectSummary(rs));
+                    }
+                }
+                op.addQueries(1);
+                op.addRowsRead(summaries.size());
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to get project page: {}", e.getMessage());
+                throw new DbException("Could not get project page", e);
+            }
+
+            String nextPageToken = null;
+            if (summaries.size() > pageSize) {
+                summaries.remove(pageSize);
+                ProjectSummary last = summaries.get(pageSize - 1);
+                nextPageToken = encodePageToken(last.getProjectId(), last.getProjectName());
+            }
+            return new ProjectPage(summaries, nextPageToken);
+        });
+    }
+
+    // Get one page of project summaries, most expensive first. Keyset pagination on
+    // (total_cost DESC, project_id) over the rollup column, so no materials are read.
+    public ProjectPage getProjectPageByCost(String pageToken, int pageSize) {
+        return metrics.measure("getProjectPageByCost", op -> {
+            if (pageSize < 1) {
+                throw new DbException("Page size must be at least 1");
+            }
+
+            String sql = pageToken == null ? COST_PAGE_FIRST_SQL : COST_PAGE_NEXT_SQL;
+            List<ProjectSummary> summaries = new ArrayList<>();
+
+            try (Connection conn = DbConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                int index = 1;
+                if (pageToken != null) {
+                    String[] after = decodePageToken(pageToken);
+                    BigDecimal cost = parseCost(after[1], pageToken);
+                    stmt.setBigDecimal(index++, cost);
+                    stmt.setBigDecimal(index++, cost);
+                    stmt.setInt(index++, Integer.parseInt(after[0]));
+                }
+                // Ask for one extra row to find out whether there is another page
+                stmt.setInt(index, pageSize + 1);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        summaries.add(mapProjectSummary(rs));
+                    }
+                }
+                op.addQueries(1);
+                op.addRowsRead(summaries.size());
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to get project page by cost: {}", e.getMessage());
+                throw new DbException("Could not get project page", e);
+            }
+
+            String nextPageToken = null;
+            if (summaries.size() > pageSize) {
+                summaries.remove(pageSize);
+                ProjectSummary last = summaries.get(pageSize - 1);
+                nextPageToken = encodePageToken(last.getProjectId(), last.getTotalCost().toPlainString());
+            }
+            return new ProjectPage(summaries, nextPageToken);
+        });
+    }
+
+    private static BigDecimal parseCost(String cost, String pageToken) {
+        try {
+            return new BigDecimal(cost);
+        } catch (NumberFormatException e) {
+            throw new DbException("Invalid page token: " + pageToken, e);
+        }
+    }
+
+    // A page token is the (id, sort key) of the last row on a page, Base64 encoded
+    private static String encodePageToken(Integer projectId, String sortKey) {
+        String raw = projectId + ":" + sortKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns { id, sort key } from a page token
+    private static String[] decodePageToken(String pageToken) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            String[] parts = { raw.substring(0, colon), raw.substring(colon + 1) };
+            Integer.parseInt(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new DbException("Invalid page token: " + pageToken, e);
+        }
+    }
+
+    // Stream every project ordered by name without holding them all in memory. Rows are
+    // streamed from MySQL one at a time, so the connection stays borrowed until the stream
+    // is closed: always use it in a try-with-resources block.
+    public Stream<Project> streamAllProjects() {
+        return metrics.measure("streamAllProjects", op -> {
+            String sql = ALL_PROJECTS_SQL;
+            Connection conn = DbConnection.getConnection();
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+
+            try {
+                stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // Integer.MIN_VALUE tells Connector/J to stream rows instead of buffering the result
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                rs = stmt.executeQuery();
+                op.addQueries(1);
+
+            } catch (SQLException e) {
+                closeQuietly(rs, stmt, conn);
+                LOG.warn("Failed to stream projects: {}", e.getMessage());
+                throw new DbException("Could not stream projects", e);
+            }
+
+            ResultSet results = rs;
+            Spliterator<Project> rows = new Spliterators.AbstractSpliterator<Project>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Project> action) {
+                    try {
+                        if (!results.next()) {
+                            return false;
+                        }
+                        op.addRowsRead(1);
+                        action.accept(mapProject(results));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new DbException("Could not read next project", e);
+                    }
+                }
+            };
+
+            PreparedStatement statement = stmt;
+            return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(results, statement, conn));
+        });
+    }
+
+    // Close JDBC resources in reverse order of opening, ignoring errors
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    // Already failing or finished, nothing more to do
+                }
+            }
+        }
+    }
+
+    // Get one specific project by its ID, together with its steps, materials and categories
     public Project getProject(Integer projectId) {
-        // SQL command to get one project
-        String sql = "SELECT * FROM project WHERE project_id = ?";
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        return metrics.measure("getProject", op -> {
+            try {
+                Project project;
+                AggregateLoadMode mode = loadMode;
+                if (mode == AggregateLoadMode.CONCURRENT && CONCURRENT_CONNECTIONS.tryAcquire(CONCURRENT_QUERIES)) {
+                    AtomicInteger queries = new AtomicInteger();
+                    try {
+                        project = getProjectConcurrent(projectId, queries);
+                    } finally {
+                        CONCURRENT_CONNECTIONS.release(CONCURRENT_QUERIES);
+                    }
+                    op.addQueries(queries.get());
+                } else {
+                    try (Connection conn = DbConnection.getConnection()) {
+                        if (mode == AggregateLoadMode.SEQUENTIAL) {
+                            project = getProjectSequential(conn, projectId);
+                            op.addQueries(project == null ? 1 : 4);
+                        } else {
+                            project = getProjectBatched(conn, projectId);
+                            op.addQueries(1);
+                        }
+                    }
+                }
 
-            // Fill in the project ID
+                if (project != null) {
+                    op.addRowsRead(1 + project.getSteps().size() + project.getMaterials().size()
+                            + project.getCategories().size());
+                    LOG.debug("Found project: {}", project.getProjectName());
+                } else {
+                    LOG.debug("Project with ID {} not found", projectId);
+                }
+                return project;
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to get project: {}", e.getMessage());
+                throw new DbException("Could not get project", e);
+            }
+        });
+    }
+
+    // Choose how getProject loads the project's children
+    public void setLoadMode(AggregateLoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    public AggregateLoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    // Run the project and child queries one after another on one connection
+    private Project getProjectSequential(Connection conn, Integer projectId) throws SQLException {
+        Project project = null;
+
+        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_SQL)) {
             stmt.setInt(1, projectId);
-            
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    // Found the project - create it
-                    Project project = new Project();
-                    project.setProjectId(rs.getInt("project_id"));
-                    project.setProjectName(rs.getString("project_name"));
-                    project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
-                    project.setActualHours(rs.getBigDecimal("actual_hours"));
-                    project.setDifficulty(rs.getInt("difficulty"));
-                    project.setNotes(rs.getString("notes"));
-                    
-                    // FIXED: Now fetch all related data
-                    project.setSteps(getSteps(projectId));
-                    project.setMaterials(getMaterialsForProject(projectId));
-                    project.setCategories(getCategoriesForProject(projectId));
-                    
-                    System.out.println("✓ Found project: " + project.getProjectName());
-                    return project;
-                } else {
-                    // Project not found
-                    System.out.println("✗ Project with ID " + projectId + " not found");
-                    return null;
+                    project = mapProject(rs);
                 }
             }
-            
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to get project: " + e.getMessage());
-            throw new DbException("Could not get project", e);
         }
+
+        if (project != null) {
+            project.setSteps(getSteps(conn, projectId));
+            project.setMaterials(getMaterialsForProject(conn, projectId));
+            project.setCategories(getCategoriesForProject(conn, projectId));
+        }
+        return project;
+    }
+
+    // Run the project and child queries at the same time, each on its own pooled
+    // connection, so the load takes as long as the slowest query rather than all four.
+    // If any query fails the others are cancelled and the first failure is thrown. The
+    // caller must hold CONCURRENT_QUERIES permits. Queries that actually ran are counted in
+    // queries; child queries cancelled because the project doesn't exist are not.
+    private Project getProjectConcurrent(Integer projectId, AtomicInteger queries) throws SQLException {
+        Future<Project> projectFuture = submitQuery(queries, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(PROJECT_SQL)) {
+                stmt.setInt(1, projectId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? mapProject(rs) : null;
+                }
+            }
+        });
+        Future<List<Step>> stepsFuture = submitQuery(queries, conn -> getSteps(conn, projectId));
+        Future<List<Material>> materialsFuture = submitQuery(queries, conn -> getMaterialsForProject(conn, projectId));
+        Future<List<Category>> categoriesFuture = submitQuery(queries, conn -> getCategoriesForProject(conn, projectId));
+        List<Future<?>> futures = List.of(projectFuture, stepsFuture, materialsFuture, categoriesFuture);
+
+        try {
+            Project project = projectFuture.get();
+            if (project == null) {
+                cancelAll(futures);
+                return null;
+            }
+            project.setSteps(stepsFuture.get());
+            project.setMaterials(materialsFuture.get());
+            project.setCategories(categoriesFuture.get());
+            return project;
+
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof DbException) {
+                throw (DbException) cause;
+            }
+            throw new DbException("Could not get project", cause);
+
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while getting project", e);
+        }
+    }
+
+    // A query to run on a connection borrowed for just that query
+    private interface ConnectionTask<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private static <T> Future<T> submitQuery(AtomicInteger queries, ConnectionTask<T> task) {
+        return QUERY_EXECUTOR.submit(() -> {
+            queries.incrementAndGet();
+            try (Connection conn = DbConnection.getConnection()) {
+                return task.run(conn);
+            }
+        });
+    }
+
+    private static void cancelAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    // Send all four queries in one round trip and read back one result set per table
+    private Project getProjectBatched(Connection conn, Integer projectId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(AGGREGATE_SQL)) {
+            for (int i = 1; i <= 4; i++) {
+                stmt.setInt(i, projectId);
+            }
+
+            stmt.execute();
+
+            Project project = null;
+            try (ResultSet rs = stmt.getResultSet()) {
+                if (rs.next()) {
+                    project = mapProject(rs);
+                }
+            }
+            if (project == null) {
+                return null;
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    project.getSteps().add(mapStep(rs));
+                }
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    project.getMaterials().add(mapMaterial(rs));
+                }
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    project.getCategories().add(categories.resolve(conn, rs.getInt("category_id")));
+                }
+            }
+
+            return project;
+        }
+    }
+
+    // Load many full projects at once. Children are fetched with IN (...) queries, one
+    // multi-statement round trip per chunk of IDs, and stitched into their parents here.
+    // Projects come back in the order of the given IDs; unknown IDs are skipped.
+    public List<Project> getProjects(Collection<Integer> projectIds) {
+        return metrics.measure("getProjects", op -> {
+            List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+            Map<Integer, Project> projectsById = new HashMap<>();
+
+            try (Connection conn = DbConnection.getConnection()) {
+                for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+                    List<Integer> chunk = ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size()));
+                    loadProjectChunk(conn, chunk, projectsById);
+                    op.addQueries(1);
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to get projects: {}", e.getMessage());
+                throw new DbException("Could not get projects", e);
+            }
+
+            List<Project> projects = new ArrayList<>();
+            for (Integer id : ids) {
+                Project project = projectsById.get(id);
+                if (project != null) {
+                    projects.add(project);
+                }
+            }
+
+            for (Project project : projects) {
+                op.addRowsRead(1 + project.getSteps().size() + project.getMaterials().size()
+                        + project.getCategories().size());
+            }
+            LOG.debug("Found {} of {} requested projects", projects.size(), ids.size());
+            return projects;
+        });
+    }
+
+    // Load one chunk of projects and their children in a single round trip
+    private void loadProjectChunk(Connection conn, List<Integer> ids, Map<Integer, Project> projectsById)
+            throws SQLException {
+        // Round the IN list up to a power of two, repeating the last ID, so only a handful
+        // of distinct SQL strings reach the driver's prepared statement cache
+        int slots = inListSize(ids.size());
+        String sql = loadChunkSql(slots);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int query = 0; query < 4; query++) {
+                for (int slot = 0; slot < slots; slot++) {
+                    stmt.setInt(index++, ids.get(Math.min(slot, ids.size() - 1)));
+                }
+            }
+
+            stmt.execute();
+
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    Project project = mapProject(rs);
+                    projectsById.put(project.getProjectId(), project);
+                }
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    Project project = projectsById.get(rs.getInt("project_id"));
+                    if (project != null) {
+                        project.getSteps().add(mapStep(rs));
+                    }
+                }
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    Project project = projectsById.get(rs.getInt("project_id"));
+                    if (project != null) {
+                        project.getMaterials().add(mapMaterial(rs));
+                    }
+                }
+            }
+
+            stmt.getMoreResults();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    Project project = projectsById.get(rs.getInt("project_id"));
+                    if (project != null) {
+                        project.getCategories().add(categories.resolve(conn, rs.getInt("category_id")));
+                    }
+                }
+            }
+        }
+    }
+
+    // The smallest power of two that holds count IDs, capped at the chunk size
+    private static int inListSize(int count) {
+        int size = Integer.highestOneBit(count);
+        if (size < count) {
+            size <<= 1;
+        }
+        return Math.min(size, BULK_CHUNK_SIZE);
     }
 
-    // Update an existing project
+    // The four loads of loadProjectChunk for an IN list of the given size
+    private static String loadChunkSql(int slots) {
+        String in = placeholders(slots);
+        return "SELECT * FROM project WHERE project_id IN (" + in + "); "
+                + "SELECT * FROM step WHERE project_id IN (" + in + ") ORDER BY project_id, step_order, step_id; "
+                + "SELECT * FROM material WHERE project_id IN (" + in + "); "
+                + "SELECT project_id, category_id FROM project_category WHERE project_id IN (" + in + ")";
+    }
+
+    // The five statements of deleteProjectChunk for an IN list of the given size
+    private static String deleteChunkSql(int slots) {
+        String in = placeholders(slots);
+        return "SELECT category_id FROM project_category WHERE project_id IN (" + in + ") FOR UPDATE; "
+                + "DELETE FROM project_category WHERE project_id IN (" + in + "); "
+                + "DELETE FROM step WHERE project_id IN (" + in + "); "
+                + "DELETE FROM material WHERE project_id IN (" + in + "); "
+                + "DELETE FROM project WHERE project_id IN (" + in + ")";
+    }
+
+    // Build "?, ?, ?" for an IN list of the given size
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    // Update an existing project, writing only the fields changed since it was loaded.
+    // Nothing is sent if no field has changed. If the project has a version, the update
+    // only goes through when the row still has that version, and the version is then
+    // bumped on the project. Otherwise a ProjectConflictException is thrown and nothing
+    // is written.
     public void updateProject(Project project) {
-        // SQL command to update a project
-        String sql = "UPDATE project SET project_name=?, estimated_hours=?, actual_hours=?, difficulty=?, notes=? WHERE project_id=?";
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Fill in the new values
-            stmt.setString(1, project.getProjectName());
-            stmt.setBigDecimal(2, project.getEstimatedHours());
-            stmt.setBigDecimal(3, project.getActualHours());
-            stmt.setInt(4, project.getDifficulty());
-            stmt.setString(5, project.getNotes());
-            stmt.setInt(6, project.getProjectId());
-            
-            // Execute the update
-            int rowsUpdated = stmt.executeUpdate();
-            if (rowsUpdated > 0) {
-                System.out.println("✓ Project updated successfully");
-            } else {
-                System.out.println("✗ No project was updated");
+        metrics.measureVoid("updateProject", op -> {
+            ProjectUpdate update = project.takeChanges();
+            if (update.isEmpty()) {
+                LOG.debug("Project unchanged, nothing to update");
+                return;
             }
+
+            Set<Project.Field> fields = EnumSet.copyOf(update.getFields());
+            try (Connection conn = DbConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(projectUpdateSql(fields))) {
+
+                // Fill in the new values
+                bindProjectUpdate(stmt, update, fields);
+
+                // Execute the update
+                int rowsUpdated = stmt.executeUpdate();
+                op.addQueries(1);
+                op.addRowsWritten(rowsUpdated);
+                if (rowsUpdated > 0) {
+                    update.markWritten();
+                    LOG.debug("Project updated successfully");
+                } else if (update.getVersion() != null && projectExists(conn, update.getProjectId())) {
+                    op.addQueries(1);
+                    throw new ProjectConflictException(update.getProjectId(), update.getVersion());
+                } else {
+                    LOG.debug("No project was updated");
+                }
             
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to update project: " + e.getMessage());
-            throw new DbException("Could not update project", e);
+            } catch (SQLException e) {
+                LOG.warn("Failed to update project: {}", e.getMessage());
+                throw new DbException("Could not update project", e);
+            }
+        });
+    }
+
+    // Apply a set of buffered writes in one transaction: project updates first, then new
+    // steps. Updates are written in project ID order, and consecutive ones that changed the
+    // same fields share one JDBC batch; empty updates are skipped. Used by the service's
+    // write-behind buffer. If any versioned update conflicts, nothing is written and a
+    // ProjectConflictException names the first conflicting project.
+    public void applyWrites(Collection<ProjectUpdate> updates, List<Step> newSteps) {
+        metrics.measureVoid("applyWrites", op -> {
+            List<ProjectUpdate> projects = new ArrayList<>();
+            for (ProjectUpdate update : updates) {
+                if (!update.isEmpty()) {
+                    projects.add(update);
+                }
+            }
+            if (projects.isEmpty() && newSteps.isEmpty()) {
+                return;
+            }
+            projects.sort(Comparator.comparing(ProjectUpdate::getProjectId));
+
+            // The updates and the rollups of the new steps each lock project rows. Locking
+            // all of them up front in ID order keeps two flushes, or a flush and a direct
+            // write, from each holding a row the other one is waiting for.
+            SortedSet<Integer> lockedIds = new TreeSet<>();
+            for (ProjectUpdate update : projects) {
+                lockedIds.add(update.getProjectId());
+            }
+            for (Step step : newSteps) {
+                lockedIds.add(step.getProjectId());
+            }
+
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    int statements = 0;
+                    if (lockedIds.size() > 1) {
+                        statements += lockProjects(conn, new ArrayList<>(lockedIds));
+                    }
+                    int start = 0;
+                    while (start < projects.size()) {
+                        Set<Project.Field> fields = EnumSet.copyOf(projects.get(start).getFields());
+                        int end = start + 1;
+                        while (end < projects.size() && projects.get(end).getFields().equals(fields)) {
+                            end++;
+                        }
+                        updateProjects(conn, projects.subList(start, end), fields);
+                        statements++;
+                        start = end;
+                    }
+                    if (!newSteps.isEmpty()) {
+                        adjustRollups(conn, stepRollups(newSteps));
+                        statements++;
+                        try (PreparedStatement stmt = conn.prepareStatement(STEP_APPEND_SQL)) {
+                            addToBatch(stmt, newSteps, this::bindStepAppend);
+                            stmt.executeBatch();
+                            statements++;
+                        }
+                    }
+                    commitTransaction(conn);
+                    for (ProjectUpdate update : projects) {
+                        update.markWritten();
+                    }
+                    op.addQueries(statements);
+                    op.addRowsWritten(projects.size() + newSteps.size());
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+                LOG.debug("Wrote {} project updates and {} steps", projects.size(), newSteps.size());
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to apply buffered writes: {}", e.getMessage());
+                throw new DbException("Could not apply buffered writes", e);
+            }
+        });
+    }
+
+    // Update projects that all changed the same fields as one batch
+    private void updateProjects(Connection conn, List<ProjectUpdate> projects, Set<Project.Field> fields)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(projectUpdateSql(fields))) {
+            addToBatch(stmt, projects, (s, update) -> bindProjectUpdate(s, update, fields));
+            int[] counts = stmt.executeBatch();
+
+            // A versioned update that matched nothing lost a race with another writer,
+            // unless the project has been deleted since
+            for (int i = 0; i < counts.length; i++) {
+                ProjectUpdate project = projects.get(i);
+                if (counts[i] == 0 && project.getVersion() != null
+                        && projectExists(conn, project.getProjectId())) {
+                    throw new ProjectConflictException(project.getProjectId(), project.getVersion());
+                }
+            }
+        }
+    }
+
+    // An UPDATE that sets just the given fields. Updates only match the version the
+    // project was read at (optimistic locking); a null version matches any row, for
+    // callers that want the last write to win. There are at most 31 different
+    // statements, so each stays in the driver's prepared statement cache.
+    private static String projectUpdateSql(Set<Project.Field> fields) {
+        StringBuilder sql = new StringBuilder("UPDATE project SET ");
+        for (Project.Field field : fields) {
+            sql.append(projectColumn(field)).append("=?, ");
+        }
+        return sql.append("version=version+1 WHERE project_id=? AND version=COALESCE(?, version)").toString();
+    }
+
+    private static String projectColumn(Project.Field field) {
+        switch (field) {
+            case PROJECT_NAME:
+                return "project_name";
+            case ESTIMATED_HOURS:
+                return "estimated_hours";
+            case ACTUAL_HOURS:
+                return "actual_hours";
+            case DIFFICULTY:
+                return "difficulty";
+            case NOTES:
+                return "notes";
+            default:
+                throw new IllegalArgumentException("Unknown project field " + field);
+        }
+    }
+
+    // Fill in the values of projectUpdateSql(fields), in the same field order
+    private void bindProjectUpdate(PreparedStatement stmt, ProjectUpdate update, Set<Project.Field> fields)
+            throws SQLException {
+        int index = 1;
+        for (Project.Field field : fields) {
+            switch (field) {
+                case PROJECT_NAME:
+                case NOTES:
+                    setParameter(stmt, index++, update.getValue(field), String.class);
+                    break;
+                case ESTIMATED_HOURS:
+                case ACTUAL_HOURS:
+                    setParameter(stmt, index++, update.getValue(field), BigDecimal.class);
+                    break;
+                case DIFFICULTY:
+                    setParameter(stmt, index++, update.getValue(field), Integer.class);
+                    break;
+            }
+        }
+        setParameter(stmt, index++, update.getProjectId(), Integer.class);
+        setParameter(stmt, index, update.getVersion(), Integer.class);
+    }
+
+    // Whether a project row exists, used to tell a version conflict from a missing project
+    private boolean projectExists(Connection conn, Integer projectId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_EXISTS_SQL)) {
+            setParameter(stmt, 1, projectId, Integer.class);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
-    // FIXED: Delete a project
+    // Delete a project. Its steps, materials and category links go with it through the
+    // foreign keys. The affected row count of the DELETE tells whether the project existed,
+    // so there is no separate existence check to race with. The links are read with FOR
+    // UPDATE in the same transaction, so none can be added or removed before the delete.
     public void deleteProject(Integer projectId) {
-        // FIXED: Check if project exists first
-        String checkSql = "SELECT COUNT(*) FROM project WHERE project_id = ?";
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, projectId);
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (rs.next() && rs.getInt(1) == 0) {
-                    throw new DbException("Project with ID " + projectId + " does not exist");
+        metrics.measureVoid("deleteProject", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try (PreparedStatement stmt = conn.prepareStatement(PROJECT_DELETE_SQL)) {
+                    // Fill in the project ID
+                    setParameter(stmt, 1, projectId, Integer.class);
+                    setParameter(stmt, 2, projectId, Integer.class);
+
+                    // Execute the delete
+                    stmt.execute();
+                    List<Integer> categoryIds = new ArrayList<>();
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        while (rs.next()) {
+                            categoryIds.add(rs.getInt(1));
+                        }
+                    }
+                    stmt.getMoreResults();
+                    int rowsDeleted = stmt.getUpdateCount();
+                    op.addQueries(1);
+                    op.addRowsWritten(rowsDeleted);
+                    if (rowsDeleted == 0) {
+                        throw new DbException("Project with ID " + projectId + " does not exist");
+                    }
+                    commitLinks(conn, categoryIds, -1);
+                    LOG.debug("Project deleted successfully");
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
                 }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to delete project: {}", e.getMessage());
+                throw new DbException("Could not delete project", e);
             }
-        } catch (SQLException e) {
-            throw new DbException("Could not check project existence", e);
-        }
-        
-        // SQL command to delete a project
-        String sql = "DELETE FROM project WHERE project_id = ?";
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        });
+    }
 
-            // Fill in the project ID
-            stmt.setInt(1, projectId);
-            
-            // Execute the delete
-            int rowsDeleted = stmt.executeUpdate();
-            if (rowsDeleted > 0) {
-                System.out.println("✓ Project deleted successfully");
-            } else {
-                System.out.println("✗ No project was deleted");
+    // Delete many projects together with their category links, steps and materials in one
+    // transaction. Children are deleted explicitly rather than by cascade, and each chunk
+    // of IDs is one multi-statement round trip. IDs that don't exist are ignored. Returns
+    // the number of projects deleted.
+    public int deleteProjects(Collection<Integer> projectIds) {
+        return metrics.measure("deleteProjects", op -> {
+            List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+            if (ids.isEmpty()) {
+                return 0;
             }
-            
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to delete project: " + e.getMessage());
-            throw new DbException("Could not delete project", e);
+
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    int deleted = 0;
+                    List<Integer> unlinkedCategoryIds = new ArrayList<>();
+                    for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+                        List<Integer> chunk = ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size()));
+                        int[] counts = deleteProjectChunk(conn, chunk, unlinkedCategoryIds);
+                        op.addQueries(1);
+                        for (int count : counts) {
+                            op.addRowsWritten(count);
+                        }
+                        deleted += counts[counts.length - 1];
+                    }
+
+                    commitLinks(conn, unlinkedCategoryIds, -1);
+                    LOG.debug("Deleted {} of {} requested projects", deleted, ids.size());
+                    return deleted;
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to delete projects: {}", e.getMessage());
+                throw new DbException("Could not delete projects", e);
+            }
+        });
+    }
+
+    // Delete one chunk of projects and their children in a single round trip. Returns the
+    // rows deleted from project_category, step, material and project, in that order, and
+    // adds the category ID of every deleted link to unlinkedCategoryIds.
+    private int[] deleteProjectChunk(Connection conn, List<Integer> ids, List<Integer> unlinkedCategoryIds)
+            throws SQLException {
+        // Padded like loadProjectChunk; a repeated ID is harmless in a DELETE
+        int slots = inListSize(ids.size());
+        String sql = deleteChunkSql(slots);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int query = 0; query < 5; query++) {
+                for (int slot = 0; slot < slots; slot++) {
+                    stmt.setInt(index++, ids.get(Math.min(slot, ids.size() - 1)));
+                }
+            }
+
+            stmt.execute();
+            try (ResultSet rs = stmt.getResultSet()) {
+                while (rs.next()) {
+                    unlinkedCategoryIds.add(rs.getInt(1));
+                }
+            }
+
+            int[] counts = new int[4];
+            for (int query = 0; query < 4; query++) {
+                stmt.getMoreResults();
+                counts[query] = stmt.getUpdateCount();
+            }
+            return counts;
         }
     }
 
-    // Add a step to a project
+    // Add a step to a project. A step without a step order is appended after the last
+    // step; its order is then left null on the step. The generated step ID is set.
     public void addStep(Step step) {
-        // SQL command to insert a new step
-        String sql = "INSERT INTO step (project_id, step_text, step_order) VALUES (?, ?, ?)";
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        metrics.measureVoid("addStep", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
 
-            // Fill in the values
-            stmt.setInt(1, step.getProjectId());
-            stmt.setString(2, step.getStepText());
-            stmt.setInt(3, step.getStepOrder());
-            
-            // Execute the insert
-            stmt.executeUpdate();
-            System.out.println("✓ Step added to project");
+                try (PreparedStatement stmt = conn.prepareStatement(STEP_APPEND_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    adjustRollups(conn, stepRollups(List.of(step)));
+
+                    // Fill in the values
+                    bindStepAppend(stmt, step);
+
+                    // Execute the insert
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            step.setStepId(keys.getInt(1));
+                        }
+                    }
+                    commitTransaction(conn);
+                    op.addQueries(2);
+                    op.addRowsWritten(2);
+                    LOG.debug("Step added to project");
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
             
+            } catch (SQLException e) {
+                LOG.warn("Failed to add step: {}", e.getMessage());
+                throw new DbException("Could not add step", e);
+            }
+        });
+    }
+
+    // Add many steps in one transaction using a JDBC batch. Steps without a step order are
+    // appended after the last step of their project, in list order.
+    public void addSteps(List<Step> steps) {
+        metrics.measureVoid("addSteps", op -> {
+            // Plain INSERTs can be rewritten into multi-row INSERTs, so use them when we can
+            boolean allOrdered = steps.stream().allMatch(step -> step.getStepOrder() != null);
+            int added = allOrdered
+                    ? executeBatch(STEP_INSERT_SQL, steps, this::bindStep, stepRollups(steps), null, "steps")
+                    : executeBatch(STEP_APPEND_SQL, steps, this::bindStepAppend, stepRollups(steps), null, "steps");
+            op.addQueries(added > 0 ? 2 : 0);
+            op.addRowsWritten(added);
+            LOG.debug("Added {} steps", added);
+        });
+    }
+
+    // Insert a step right after another step of the same project, or first when afterStepId
+    // is null. Only the new row is written, unless its neighbours have no gap left between
+    // them and the project's steps are renumbered first. The step ID and order are set.
+    public void insertStep(Step step, Integer afterStepId) {
+        metrics.measureVoid("insertStep", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    lockProject(conn, step.getProjectId(), op);
+                    adjustRollups(conn, stepRollups(List.of(step)));
+                    step.setStepOrder(orderAfter(conn, step.getProjectId(), afterStepId, 0, op));
+
+                    try (PreparedStatement stmt = conn.prepareStatement(STEP_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        bindStep(stmt, step);
+                        stmt.executeUpdate();
+                        try (ResultSet keys = stmt.getGeneratedKeys()) {
+                            if (keys.next()) {
+                                step.setStepId(keys.getInt(1));
+                            }
+                        }
+                    }
+                    op.addQueries(2);
+                    op.addRowsWritten(2);
+
+                    commitTransaction(conn);
+                    LOG.debug("Step inserted at order {}", step.getStepOrder());
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to insert step: {}", e.getMessage());
+                throw new DbException("Could not insert step", e);
+            }
+        });
+    }
+
+    // Move a step to right after another step of the same project, or to the front when
+    // afterStepId is null. Like insertStep, this normally writes only the moved row.
+    public void moveStep(Integer projectId, Integer stepId, Integer afterStepId) {
+        if (stepId.equals(afterStepId)) {
+            throw new IllegalArgumentException("A step can't be moved after itself");
+        }
+
+        metrics.measureVoid("moveStep", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    lockProject(conn, projectId, op);
+                    int order = orderAfter(conn, projectId, afterStepId, stepId, op);
+
+                    try (PreparedStatement stmt = conn.prepareStatement(STEP_MOVE_SQL)) {
+                        setParameter(stmt, 1, order, Integer.class);
+                        setParameter(stmt, 2, stepId, Integer.class);
+                        setParameter(stmt, 3, projectId, Integer.class);
+                        int rowsUpdated = stmt.executeUpdate();
+                        op.addQueries(1);
+                        op.addRowsWritten(rowsUpdated);
+                        if (rowsUpdated == 0) {
+                            throw new DbException("Step with ID " + stepId + " does not exist in project " + projectId);
+                        }
+                    }
+
+                    commitTransaction(conn);
+                    LOG.debug("Step moved to order {}", order);
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to move step: {}", e.getMessage());
+                throw new DbException("Could not move step", e);
+            }
+        });
+    }
+
+    // Delete one step. The remaining steps keep their order numbers; the gap is reused later.
+    public void deleteStep(Integer projectId, Integer stepId) {
+        metrics.measureVoid("deleteStep", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try (PreparedStatement stmt = conn.prepareStatement(STEP_DELETE_SQL)) {
+                    RollupDelta rollup = new RollupDelta();
+                    rollup.steps = -1;
+                    adjustRollups(conn, Map.of(projectId, rollup));
+                    op.addQueries(1);
+
+                    setParameter(stmt, 1, stepId, Integer.class);
+                    setParameter(stmt, 2, projectId, Integer.class);
+
+                    // Rolled back along with the rollup if the step doesn't exist
+                    int rowsDeleted = stmt.executeUpdate();
+                    op.addQueries(1);
+                    if (rowsDeleted == 0) {
+                        throw new DbException("Step with ID " + stepId + " does not exist in project " + projectId);
+                    }
+
+                    commitTransaction(conn);
+                    op.addRowsWritten(2);
+                    LOG.debug("Step deleted");
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to delete step: {}", e.getMessage());
+                throw new DbException("Could not delete step", e);
+            }
+        });
+    }
+
+    // Renumber a project's steps GAP apart, keeping their order. Inserts and moves do this
+    // by themselves when they run out of room; it can also be run ahead of time, e.g. by a
+    // maintenance job, to keep that cost off interactive edits.
+    public void renumberSteps(Integer projectId) {
+        metrics.measureVoid("renumberSteps", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try {
+                    lockProject(conn, projectId, op);
+                    renumberSteps(conn, projectId, op);
+                    commitTransaction(conn);
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to renumber steps: {}", e.getMessage());
+                throw new DbException("Could not renumber steps", e);
+            }
+        });
+    }
+
+    // Lock the rows of the given projects, sorted by ID, for the rest of the transaction.
+    // Chunks are locked in order and each one in index order, so every caller takes the
+    // locks in the same order. Returns the number of queries sent.
+    private int lockProjects(Connection conn, List<Integer> sortedIds) throws SQLException {
+        int queries = 0;
+        for (int from = 0; from < sortedIds.size(); from += BULK_CHUNK_SIZE) {
+            List<Integer> chunk = sortedIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, sortedIds.size()));
+            int slots = inListSize(chunk.size());
+
+            try (PreparedStatement stmt = conn.prepareStatement(String.format(PROJECTS_LOCK_SQL, placeholders(slots)))) {
+                for (int slot = 0; slot < slots; slot++) {
+                    stmt.setInt(slot + 1, chunk.get(Math.min(slot, chunk.size() - 1)));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        // Only the locks are wanted
+                    }
+                }
+            }
+            queries++;
+        }
+        return queries;
+    }
+
+    // Lock the project row for the rest of the transaction, failing if it doesn't exist
+    private void lockProject(Connection conn, Integer projectId, OperationMetrics op) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_LOCK_SQL)) {
+            setParameter(stmt, 1, projectId, Integer.class);
+            op.addQueries(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new DbException("Project with ID " + projectId + " does not exist");
+                }
+            }
+        }
+    }
+
+    // The order number for a step placed right after afterStepId (first when null),
+    // ignoring the step being moved. Renumbers the project's steps once if the two
+    // neighbours have no gap left.
+    private int orderAfter(Connection conn, Integer projectId, Integer afterStepId, int movingStepId,
+                           OperationMetrics op) throws SQLException {
+        for (boolean renumbered = false; ; renumbered = true) {
+            int previous = 0;
+            if (afterStepId != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(STEP_ORDER_SQL)) {
+                    setParameter(stmt, 1, afterStepId, Integer.class);
+                    setParameter(stmt, 2, projectId, Integer.class);
+                    op.addQueries(1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new DbException("Step with ID " + afterStepId + " does not exist in project " + projectId);
+                        }
+                        previous = rs.getInt(1);
+                    }
+                }
+            }
+
+            Integer next = null;
+            try (PreparedStatement stmt = conn.prepareStatement(NEXT_STEP_ORDER_SQL)) {
+                setParameter(stmt, 1, projectId, Integer.class);
+                setParameter(stmt, 2, movingStepId, Integer.class);
+                setParameter(stmt, 3, previous, Integer.class);
+                setParameter(stmt, 4, previous, Integer.class);
+                setParameter(stmt, 5, afterStepId == null ? 0 : afterStepId, Integer.class);
+                op.addQueries(1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        next = rs.getInt(1);
+                    }
+                }
+            }
+
+            Integer order = StepOrder.between(previous, next);
+            if (order != null) {
+                return order;
+            }
+            if (renumbered) {
+                throw new DbException("No room to place a step in project " + projectId);
+            }
+            renumberSteps(conn, projectId, op);
+        }
+    }
+
+    private void renumberSteps(Connection conn, Integer projectId, OperationMetrics op) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(STEP_RENUMBER_SQL)) {
+            setParameter(stmt, 1, projectId, Integer.class);
+            int renumbered = stmt.executeUpdate();
+            op.addQueries(1);
+            op.addRowsWritten(renumbered);
+            LOG.debug("Renumbered {} steps of project {}", renumbered, projectId);
+        }
+    }
+
+    // Add many materials in one transaction using a JDBC batch
+    public void addMaterials(List<Material> materials) {
+        metrics.measureVoid("addMaterials", op -> {
+            int added = executeBatch(MATERIAL_INSERT_SQL, materials, this::bindMaterial,
+                    materialRollups(materials), null, "materials");
+            op.addQueries(added > 0 ? 2 : 0);
+            op.addRowsWritten(added);
+            LOG.debug("Added {} materials", added);
+        });
+    }
+
+    // Delete one material, taking its count and cost off the project's rollups
+    public void deleteMaterial(Integer projectId, Integer materialId) {
+        metrics.measureVoid("deleteMaterial", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                startTransaction(conn);
+
+                try (PreparedStatement stmt = conn.prepareStatement(MATERIAL_DELETE_SQL)) {
+                    setParameter(stmt, 1, materialId, Integer.class);
+                    setParameter(stmt, 2, projectId, Integer.class);
+                    setParameter(stmt, 3, materialId, Integer.class);
+                    setParameter(stmt, 4, projectId, Integer.class);
+
+                    stmt.execute();
+                    stmt.getMoreResults();
+                    int rowsDeleted = stmt.getUpdateCount();
+                    op.addQueries(1);
+                    if (rowsDeleted == 0) {
+                        throw new DbException("Material with ID " + materialId + " does not exist in project " + projectId);
+                    }
+
+                    commitTransaction(conn);
+                    op.addRowsWritten(2);
+                    LOG.debug("Material deleted");
+
+                } catch (Exception e) {
+                    rollbackTransaction(conn);
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to delete material: {}", e.getMessage());
+                throw new DbException("Could not delete material", e);
+            }
+        });
+    }
+
+    // Link a project to the given categories in one transaction using a JDBC batch
+    public void linkCategories(Integer projectId, List<Integer> categoryIds) {
+        metrics.measureVoid("linkCategories", op -> {
+            int linked = executeBatch(PROJECT_CATEGORY_INSERT_SQL, categoryIds,
+                    (stmt, categoryId) -> {
+                        setParameter(stmt, 1, projectId, Integer.class);
+                        setParameter(stmt, 2, categoryId, Integer.class);
+                    }, null, categoryIds, "category links");
+            op.addQueries(linked > 0 ? 1 : 0);
+            op.addRowsWritten(linked);
+            LOG.debug("Linked {} categories to project", linked);
+        });
+    }
+
+    // Every category, from the in-memory dictionary
+    public List<Category> getCategories() {
+        return categories.getCategories();
+    }
+
+    // The number of projects in each category, most first, without a GROUP BY
+    public List<CategoryCount> getCategoryCounts() {
+        return categories.getProjectCounts();
+    }
+
+    // Reload the category dictionary and counts from the database
+    public void refreshCategories() {
+        categories.refresh();
+    }
+
+    // Binds one item's values onto a batched insert statement
+    private interface BatchBinder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    // Run one statement for every item as a single JDBC batch inside one transaction,
+    // together with the given rollup changes if there are any. Links to the given
+    // categories, if any, are counted as the batch commits. With rewriteBatchedStatements the driver
+    // sends the batch as multi-row INSERTs.
+    private <T> int executeBatch(String sql, List<T> items, BatchBinder<T> binder,
+                                 Map<Integer, RollupDelta> rollups, List<Integer> linkedCategoryIds,
+                                 String what) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        try (Connection conn = DbConnection.getConnection()) {
+            startTransaction(conn);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                if (rollups != null) {
+                    adjustRollups(conn, rollups);
+                }
+                addToBatch(stmt, items, binder);
+                stmt.executeBatch();
+                if (linkedCategoryIds != null) {
+                    commitLinks(conn, linkedCategoryIds, 1);
+                } else {
+                    commitTransaction(conn);
+                }
+                return items.size();
+
+            } catch (Exception e) {
+                rollbackTransaction(conn);
+                throw e;
+            }
+
         } catch (SQLException e) {
-            System.out.println("✗ Failed to add step: " + e.getMessage());
-            throw new DbException("Could not add step", e);
+            LOG.warn("Failed to add {}: {}", what, e.getMessage());
+            throw new DbException("Could not add " + what, e);
+        }
+    }
+
+    // Commit a transaction that added (delta 1) or removed (delta -1) links to the given
+    // categories and count them in the dictionary. The transaction bumps the link version
+    // right before committing, which tells the dictionary where the change falls relative
+    // to a count reload and keeps the version row locked as briefly as possible.
+    private void commitLinks(Connection conn, List<Integer> categoryIds, int delta) throws SQLException {
+        if (categoryIds.isEmpty()) {
+            commitTransaction(conn);
+            return;
+        }
+        long version = categories.bumpLinkVersion(conn);
+        commitTransaction(conn);
+        categories.countLinks(version, categoryIds, delta);
+    }
+
+    // Changes to one project's rollup columns
+    private static final class RollupDelta {
+        private int steps = 0;
+        private int materials = 0;
+        private BigDecimal cost = BigDecimal.ZERO;
+
+        // Count a material and its cost (number required times unit cost)
+        private void add(Material material) {
+            materials++;
+            if (material.getNumRequired() != null && material.getCost() != null) {
+                cost = cost.add(material.getCost().multiply(BigDecimal.valueOf(material.getNumRequired())));
+            }
+        }
+    }
+
+    private static Map<Integer, RollupDelta> stepRollups(List<Step> steps) {
+        Map<Integer, RollupDelta> rollups = new HashMap<>();
+        for (Step step : steps) {
+            rollups.computeIfAbsent(step.getProjectId(), id -> new RollupDelta()).steps++;
+        }
+        return rollups;
+    }
+
+    private static Map<Integer, RollupDelta> materialRollups(List<Material> materials) {
+        Map<Integer, RollupDelta> rollups = new HashMap<>();
+        for (Material material : materials) {
+            rollups.computeIfAbsent(material.getProjectId(), id -> new RollupDelta()).add(material);
+        }
+        return rollups;
+    }
+
+    // Apply rollup changes as one batch of UPDATEs, in project ID order so concurrent
+    // writers lock project rows in the same order. Must run in the child write's
+    // transaction, BEFORE the child rows are written: a child INSERT's foreign key check
+    // takes a shared lock on the project row, and two writers that both hold it and then
+    // both want the exclusive lock for the rollup UPDATE deadlock. Taking the exclusive
+    // lock first makes the second writer wait instead.
+    private void adjustRollups(Connection conn, Map<Integer, RollupDelta> rollups) throws SQLException {
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(ROLLUP_UPDATE_SQL)) {
+            for (Map.Entry<Integer, RollupDelta> entry : new TreeMap<>(rollups).entrySet()) {
+                setParameter(stmt, 1, entry.getValue().steps, Integer.class);
+                setParameter(stmt, 2, entry.getValue().materials, Integer.class);
+                setParameter(stmt, 3, entry.getValue().cost, BigDecimal.class);
+                setParameter(stmt, 4, entry.getKey(), Integer.class);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Bind every item and add it to the statement's batch
+    private <T> void addToBatch(PreparedStatement stmt, List<T> items, BatchBinder<T> binder)
+            throws SQLException {
+        for (T item : items) {
+            binder.bind(stmt, item);
+            stmt.addBatch();
         }
     }
 
+    // Fill in the values of STEP_INSERT_SQL
+    private void bindStep(PreparedStatement stmt, Step step) throws SQLException {
+        setParameter(stmt, 1, step.getProjectId(), Integer.class);
+        setParameter(stmt, 2, step.getStepText(), String.class);
+        setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+    }
+
+    // Fill in the values of STEP_APPEND_SQL
+    private void bindStepAppend(PreparedStatement stmt, Step step) throws SQLException {
+        bindStep(stmt, step);
+        setParameter(stmt, 4, step.getProjectId(), Integer.class);
+    }
+
+    // Fill in the values of MATERIAL_INSERT_SQL
+    private void bindMaterial(PreparedStatement stmt, Material material) throws SQLException {
+        setParameter(stmt, 1, material.getProjectId(), Integer.class);
+        setParameter(stmt, 2, material.getMaterialName(), String.class);
+        setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+        setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+    }
+
     // Get all steps for a specific project
     public List<Step> getSteps(Integer projectId) {
-        // SQL command to get steps for a project, ordered by step number
-        String sql = "SELECT * FROM step WHERE project_id = ? ORDER BY step_order";
+        return metrics.measure("getSteps", op -> {
+            try (Connection conn = DbConnection.getConnection()) {
+                List<Step> steps = getSteps(conn, projectId);
+                op.addQueries(1);
+                op.addRowsRead(steps.size());
+                LOG.debug("Found {} steps for project", steps.size());
+                return steps;
+
+            } catch (SQLException e) {
+                LOG.warn("Failed to get steps: {}", e.getMessage());
+                throw new DbException("Could not get steps", e);
+            }
+        });
+    }
+
+    // Get steps for a project, ordered by step number, on an existing connection
+    private List<Step> getSteps(Connection conn, Integer projectId) throws SQLException {
         List<Step> steps = new ArrayList<>();
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            // Fill in the project ID
+        try (PreparedStatement stmt = conn.prepareStatement(STEPS_SQL)) {
             stmt.setInt(1, projectId);
-            
             try (ResultSet rs = stmt.executeQuery()) {
-                // Read each step from the results
                 while (rs.next()) {
-                    Step step = new Step();
-                    step.setStepId(rs.getInt("step_id"));
-                    step.setProjectId(rs.getInt("project_id"));
-                    step.setStepText(rs.getString("step_text"));
-                    step.setStepOrder(rs.getInt("step_order"));
-                    steps.add(step);
+                    steps.add(mapStep(rs));
                 }
             }
-            
-            System.out.println("✓ Found " + steps.size() + " steps for project");
-            
-        } catch (SQLException e) {
-            System.out.println("✗ Failed to get steps: " + e.getMessage());
-            throw new DbException("Could not get steps", e);
         }
-        
         return steps;
     }
 
     // ADDED: Get materials for a project
-    private List<Material> getMaterialsForProject(Integer projectId) {
-        String sql = "SELECT * FROM material WHERE project_id = ?";
+    private List<Material> getMaterialsForProject(Connection conn, Integer projectId) throws SQLException {
         List<Material> materials = new ArrayList<>();
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+
+        try (PreparedStatement stmt = conn.prepareStatement(MATERIALS_SQL)) {
             stmt.setInt(1, projectId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Material material = new Material();
-                    material.setMaterialId(rs.getInt("material_id"));
-                    material.setProjectId(rs.getInt("project_id"));
-                    material.setMaterialName(rs.getString("material_name"));
-                    material.setNumRequired(rs.getInt("num_required"));
-                    material.setCost(rs.getBigDecimal("cost"));
-                    materials.add(material);
+                    materials.add(mapMaterial(rs));
                 }
             }
-        } catch (SQLException e) {
-            throw new DbException("Could not get materials", e);
         }
         return materials;
     }
 
     // ADDED: Get categories for a project
-    private List<Category> getCategoriesForProject(Integer projectId) {
-        String sql = "SELECT c.* FROM category c JOIN project_category pc ON c.category_id = pc.category_id WHERE pc.project_id = ?";
-        List<Category> categories = new ArrayList<>();
-        
-        try (Connection conn = DbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+    private List<Category> getCategoriesForProject(Connection conn, Integer projectId) throws SQLException {
+        List<Category> projectCategories = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(CATEGORIES_SQL)) {
             stmt.setInt(1, projectId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Category category = new Category();
-                    category.setCategoryId(rs.getInt("category_id"));
-                    category.setCategoryName(rs.getString("category_name"));
-                    categories.add(category);
+                    projectCategories.add(categories.resolve(conn, rs.getInt("category_id")));
                 }
             }
-        } catch (SQLException e) {
-            throw new DbException("Could not get categories", e);
         }
-        return categories;
+        return projectCategories;
+    }
+
+    // Build a Project from the current row
+    private Project mapProject(ResultSet rs) throws SQLException {
+        Project project = new Project();
+        project.setProjectId(rs.getInt("project_id"));
+        project.setProjectName(rs.getString("project_name"));
+        project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
+        project.setActualHours(rs.getBigDecimal("actual_hours"));
+        project.setDifficulty(rs.getObject("difficulty", Integer.class));
+        project.setNotes(rs.getString("notes"));
+        project.setVersion(rs.getObject("version", Integer.class));
+        project.markClean();
+        return project;
+    }
+
+    // Build a ProjectSummary from the current row
+    private ProjectSummary mapProjectSummary(ResultSet rs) throws SQLException {
+        ProjectSummary summary = new ProjectSummary();
+        summary.setProjectId(rs.getInt("project_id"));
+        summary.setProjectName(rs.getString("project_name"));
+        summary.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
+        summary.setDifficulty(rs.getObject("difficulty", Integer.class));
+        summary.setActualHours(rs.getBigDecimal("actual_hours"));
+        summary.setTotalCost(rs.getBigDecimal("total_cost"));
+        summary.setStepCount(rs.getInt("step_count"));
+        summary.setMaterialCount(rs.getInt("material_count"));
+        return summary;
+    }
+
+    // Build a Step from the current row
+    private Step mapStep(ResultSet rs) throws SQLException {
+        Step step = new Step();
+        step.setStepId(rs.getInt("step_id"));
+        step.setProjectId(rs.getInt("project_id"));
+        step.setStepText(rs.getString("step_text"));
+        step.setStepOrder(rs.getInt("step_order"));
+        return step;
+    }
+
+    // Build a Material from the current row
+    private Material mapMaterial(ResultSet rs) throws SQLException {
+        Material material = new Material();
+        material.setMaterialId(rs.getInt("material_id"));
+        material.setProjectId(rs.getInt("project_id"));
+        material.setMaterialName(rs.getString("material_name"));
+        material.setNumRequired(rs.getObject("num_required", Integer.class));
+        material.setCost(rs.getBigDecimal("cost"));
+        return material;
+    }
+
+    // Every query this DAO sends, with sample parameters, for QueryPlanVerifier. Plain
+    // INSERT ... VALUES statements read nothing and are left out.
+    static List<QueryPlanVerifier.PlannedQuery> plannedQueries() {
+        BigDecimal cost = BigDecimal.TEN;
+        int order = StepOrder.GAP;
+        return List.of(
+                QueryPlanVerifier.PlannedQuery.indexed("getProject", AGGREGATE_SQL, 1, 1, 1, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("getProjects", loadChunkSql(2), 1, 2, 1, 2, 1, 2, 1, 2),
+                QueryPlanVerifier.PlannedQuery.wholeTable("getAllProjects", ALL_PROJECTS_SQL),
+                QueryPlanVerifier.PlannedQuery.indexed("getProjectPage", NAME_PAGE_FIRST_SQL, 51),
+                QueryPlanVerifier.PlannedQuery.indexed("getProjectPage", NAME_PAGE_NEXT_SQL, "m", "m", 1, 51),
+                QueryPlanVerifier.PlannedQuery.indexed("getProjectPageByCost", COST_PAGE_FIRST_SQL, 51),
+                QueryPlanVerifier.PlannedQuery.indexed("getProjectPageByCost", COST_PAGE_NEXT_SQL, cost, cost, 1, 51),
+                QueryPlanVerifier.PlannedQuery.indexed("projectExists", PROJECT_EXISTS_SQL, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("updateProject", projectUpdateSql(EnumSet.allOf(Project.Field.class)),
+                        "n", cost, cost, 1, "n", 1, 0),
+                QueryPlanVerifier.PlannedQuery.indexed("addStep", STEP_APPEND_SQL, 1, "s", null, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("adjustRollups", ROLLUP_UPDATE_SQL, 1, 1, cost, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("deleteMaterial", MATERIAL_DELETE_SQL, 1, 1, 1, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("deleteProject", PROJECT_DELETE_SQL, 1, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("deleteProjects", deleteChunkSql(2), 1, 2, 1, 2, 1, 2, 1, 2, 1, 2),
+                QueryPlanVerifier.PlannedQuery.indexed("lockProject", PROJECT_LOCK_SQL, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("lockProjects", String.format(PROJECTS_LOCK_SQL, placeholders(2)), 1, 2),
+                QueryPlanVerifier.PlannedQuery.indexed("insertStep", STEP_ORDER_SQL, 1, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("insertStep", NEXT_STEP_ORDER_SQL, 1, 1, order, order, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("moveStep", STEP_MOVE_SQL, order, 1, 1),
+                QueryPlanVerifier.PlannedQuery.indexed("deleteStep", STEP_DELETE_SQL, 1, 1),
+                // The window function sorts one project's steps
+                QueryPlanVerifier.PlannedQuery.sortsFewRows("renumberSteps", STEP_RENUMBER_SQL, 1));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import projects.exception.DbException;
+import projects.log.Log;
+import projects.log.Logger;
+
+// Runs EXPLAIN on every query ProjectDao and CategoryDictionary send and fails if any of
+// them reads a whole table or sorts rows in a filesort, which is what a missing index
+// looks like. Only queries that read a whole table on purpose are allowed to scan it.
+//
+// MySQL picks plans from table statistics, and on a nearly empty table a scan can be the
+// cheapest plan even when the index exists, so verify against a database with realistic
+// row counts (the benchmarks' DataGenerator makes one). Run it from the command line:
+//
+//   java -cp target/classes projects.dao.QueryPlanVerifier
+//
+// or at application startup with -Dprojects.db.verifyPlans=true.
+public class QueryPlanVerifier {
+    private static final Logger LOG = Log.getLogger(QueryPlanVerifier.class);
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            new SchemaMigrator().migrate();
+            int checked = new QueryPlanVerifier().verify();
+            System.out.println("All " + checked + " query plans use indexes");
+        } catch (DbException e) {
+            System.err.println(e.getMessage());
+            status = 1;
+        } finally {
+            DbConnection.shutdown();
+        }
+        System.exit(status);
+    }
+
+    // EXPLAIN every query. Returns the number of statements checked, or throws a
+    // DbException listing every plan that scans or sorts.
+    public int verify() {
+        List<PlannedQuery> queries = new ArrayList<>(ProjectDao.plannedQueries());
+        queries.addAll(CategoryDictionary.plannedQueries());
+        List<String> problems = new ArrayList<>();
+        int checked = 0;
+
+        try (Connection conn = DbConnection.getConnection()) {
+            for (PlannedQuery query : queries) {
+                // Multi-statement queries are explained one statement at a time, each with
+                // its share of the parameters
+                int firstParam = 0;
+                for (String sql : query.sql.split("; ")) {
+                    int paramCount = (int) sql.chars().filter(ch -> ch == '?').count();
+                    problems.addAll(explain(conn, query, sql, firstParam, paramCount));
+                    firstParam += paramCount;
+                    checked++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DbException("Could not explain queries", e);
+        }
+
+        if (!problems.isEmpty()) {
+            throw new DbException("Query plans without a usable index:\n  " + String.join("\n  ", problems));
+        }
+        LOG.info("Verified the plans of {} statements", checked);
+        return checked;
+    }
+
+    private List<String> explain(Connection conn, PlannedQuery query, String sql, int firstParam, int paramCount)
+            throws SQLException {
+        if (firstParam + paramCount > query.params.length) {
+            throw new DbException(query.name + " needs more parameter values to be explained");
+        }
+        List<String> problems = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int index = 0; index < paramCount; index++) {
+                stmt.setObject(index + 1, query.params[firstParam + index]);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table");
+                    String type = rs.getString("type");
+                    String extra = rs.getString("Extra");
+
+                    // The INSERT row of an INSERT ... SELECT and derived tables built by the
+                    // query itself are not table reads
+                    if (table == null || table.startsWith("<") || "INSERT".equals(rs.getString("select_type"))) {
+                        continue;
+                    }
+                    if ("ALL".equals(type) && !query.wholeTable) {
+                        problems.add(query.name + ": full scan of " + table + " in " + sql);
+                    }
+                    if (extra != null && extra.contains("Using filesort") && !query.sortsFewRows) {
+                        problems.add(query.name + ": filesort on " + table + " in " + sql);
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    // A query as a DAO sends it, with parameter values that are valid for its placeholders
+    static class PlannedQuery {
+        private final String name;
+        private final String sql;
+        private final Object[] params;
+        private final boolean wholeTable;
+        private final boolean sortsFewRows;
+
+        private PlannedQuery(String name, String sql, Object[] params, boolean wholeTable, boolean sortsFewRows) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+            this.wholeTable = wholeTable;
+            this.sortsFewRows = sortsFewRows;
+        }
+
+        // A query that must find its rows through an index, without a sort
+        static PlannedQuery indexed(String name, String sql, Object... params) {
+            return new PlannedQuery(name, sql, params, false, false);
+        }
+
+        // A query that reads a whole table by design. It still must not sort.
+        static PlannedQuery wholeTable(String name, String sql, Object... params) {
+            return new PlannedQuery(name, sql, params, true, false);
+        }
+
+        // A query that finds its rows through an index and then sorts them, where the
+        // rows all belong to one project so the sort stays small
+        static PlannedQuery sortsFewRows(String name, String sql, Object... params) {
+            return new PlannedQuery(name, sql, params, false, true);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import projects.exception.DbException;
+import projects.log.Log;
+import projects.log.Logger;
+
+// Brings the database schema up to date at startup. Each migration is a script under
+// db/migration on the classpath named V<version>__<description>.sql. Applied versions are
+// recorded in schema_migration with a checksum of the script, so a script that was edited
+// after it ran is reported instead of silently diverging from the database.
+//
+// A database created before migrations existed can be baselined: setting
+// -Dprojects.db.baseline=N records versions up to N as applied without running them.
+public class SchemaMigrator {
+    private static final Logger LOG = Log.getLogger(SchemaMigrator.class);
+
+    private static final String SCRIPT_DIRECTORY = "db/migration/";
+
+    // Every migration, oldest first. Add new scripts to the end; never edit an applied one.
+    private static final List<String> SCRIPTS = List.of(
+            "V1__create_tables.sql",
+            "V2__project_version.sql",
+            "V3__project_rollups.sql",
+            "V4__access_path_indexes.sql",
+            "V5__project_category_version.sql");
+
+    private static final String HISTORY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS schema_migration ("
+            + "version INT NOT NULL, "
+            + "description VARCHAR(200) NOT NULL, "
+            + "checksum BIGINT NOT NULL, "
+            + "execution_millis INT NOT NULL, "
+            + "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+            + "PRIMARY KEY (version))";
+    private static final String HISTORY_SQL = "SELECT version, checksum FROM schema_migration";
+    private static final String HISTORY_INSERT_SQL = "INSERT INTO schema_migration (version, description, checksum, execution_millis) VALUES (?, ?, ?, ?)";
+
+    // Only one application instance migrates at a time; the others wait and then find
+    // nothing left to do
+    private static final String LOCK_SQL = "SELECT GET_LOCK('projects.schema_migration', ?)";
+    private static final String UNLOCK_SQL = "SELECT RELEASE_LOCK('projects.schema_migration')";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    // Apply every migration that hasn't been applied yet. Returns the number applied.
+    public int migrate() {
+        List<Migration> migrations = loadMigrations();
+        int baseline = Integer.getInteger("projects.db.baseline", 0);
+
+        // DDL commits implicitly in MySQL, so each script runs in autocommit mode and is
+        // recorded once it has finished
+        try (Connection conn = DbConnection.getConnection()) {
+            lock(conn);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(HISTORY_TABLE_SQL);
+                }
+                Map<Integer, Long> applied = appliedChecksums(conn);
+
+                int count = 0;
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version);
+                    if (checksum != null) {
+                        if (checksum != migration.checksum) {
+                            throw new DbException("Migration " + migration.name + " has changed since it was applied");
+                        }
+                    } else if (migration.version <= baseline) {
+                        record(conn, migration, 0);
+                        LOG.info("Baselined schema migration {}", migration.name);
+                    } else {
+                        apply(conn, migration);
+                        count++;
+                    }
+                }
+
+                if (count > 0) {
+                    LOG.info("Applied {} schema migrations", count);
+                }
+                return count;
+
+            } finally {
+                unlock(conn);
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Failed to migrate the database schema: {}", e.getMessage());
+            throw new DbException("Could not migrate the database schema", e);
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        LOG.info("Applying schema migration {}", migration.name);
+        long start = System.currentTimeMillis();
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    throw new DbException("Migration " + migration.name + " failed at: " + sql, e);
+                }
+            }
+        }
+        record(conn, migration, (int) (System.currentTimeMillis() - start));
+    }
+
+    private void record(Connection conn, Migration migration, int executionMillis) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(HISTORY_INSERT_SQL)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setLong(3, migration.checksum);
+            stmt.setInt(4, executionMillis);
+            stmt.executeUpdate();
+        }
+    }
+
+    private Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(HISTORY_SQL)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private void lock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+            stmt.setInt(1, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new DbException("Timed out waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private void unlock(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(UNLOCK_SQL);
+        } catch (SQLException e) {
+            // The lock is released anyway when the session ends
+            LOG.warn("Failed to release the schema migration lock: {}", e.getMessage());
+        }
+    }
+
+    private static List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        int previous = 0;
+
+        for (String name : SCRIPTS) {
+            Migration migration = new Migration(name, readScript(name));
+            if (migration.version <= previous) {
+                throw new DbException("Migration " + name + " is out of order");
+            }
+            previous = migration.version;
+            migrations.add(migration);
+        }
+        return migrations;
+    }
+
+    private static String readScript(String name) {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(SCRIPT_DIRECTORY + name)) {
+            if (in == null) {
+                throw new DbException("Migration script " + SCRIPT_DIRECTORY + name + " is missing");
+            }
+            // Line endings are normalized so the checksum doesn't depend on the checkout
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new DbException("Could not read migration script " + name, e);
+        }
+    }
+
+    // One parsed migration script
+    private static class Migration {
+        private final String name;
+        private final int version;
+        private final String description;
+        private final long checksum;
+        private final List<String> statements;
+
+        private Migration(String name, String script) {
+            int separator = name.indexOf("__");
+            if (!name.startsWith("V") || separator < 2 || !name.endsWith(".sql")) {
+                throw new DbException("Migration script name " + name + " is not V<version>__<description>.sql");
+            }
+            this.name = name;
+            this.version = Integer.parseInt(name.substring(1, separator));
+            this.description = name.substring(separator + 2, name.length() - 4).replace('_', ' ');
+
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+            this.statements = splitStatements(script);
+        }
+
+        // Statements end with a semicolon at the end of a line; lines starting with -- are
+        // comments
+        private static List<String> splitStatements(String script) {
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    current.setLength(0);
+                }
+            }
+            if (current.toString().trim().length() > 0) {
+                statements.add(current.toString().trim());
+            }
+            return statements;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package projects.dao;
+
+// Sparse step ordering. New steps are numbered GAP apart, so a step can be put between two
+// neighbours by taking the midpoint of their numbers, which writes only that step's row.
+// Steps with equal numbers are ordered by step ID. Once two neighbours are left with no
+// number between them, the project's steps are renumbered GAP apart again.
+final class StepOrder {
+    static final int GAP = 1024;
+
+    private StepOrder() {
+    }
+
+    // A number strictly between previous and next, or after previous when next is null.
+    // Returns null when there is no room and the steps need renumbering.
+    static Integer between(int previous, Integer next) {
+        if (next == null) {
+            return previous <= Integer.MAX_VALUE - GAP ? previous + GAP : null;
+        }
+        long gap = (long) next - previous;
+        return gap > 1 ? (int) (previous + gap / 2) : null;
+    }
+}
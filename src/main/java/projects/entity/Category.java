@@ -1,4 +1,4 @@
-A/**
+/**
  * 
  */
 package projects.entity;
@@ -0,0 +1,31 @@
+package projects.entity;
+
+// A category with the number of projects linked to it, for faceted listings
+public class CategoryCount {
+  private Integer categoryId;
+  private String categoryName;
+  private int projectCount;
+
+  public CategoryCount(Integer categoryId, String categoryName, int projectCount) {
+    this.categoryId = categoryId;
+    this.categoryName = categoryName;
+    this.projectCount = projectCount;
+  }
+
+  public Integer getCategoryId() {
+    return categoryId;
+  }
+
+  public String getCategoryName() {
+    return categoryName;
+  }
+
+  public int getProjectCount() {
+    return projectCount;
+  }
+
+  @Override
+  public String toString() {
+    return categoryName + " (" + projectCount + ")";
+  }
+}
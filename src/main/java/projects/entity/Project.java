@@ -1,21 +1,39 @@
 package projects.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class Project {
+  // The columns an update can write
+  public enum Field {
+    PROJECT_NAME, ESTIMATED_HOURS, ACTUAL_HOURS, DIFFICULTY, NOTES
+  }
+
   private Integer projectId;
   private String projectName;
   private BigDecimal estimatedHours;
   private BigDecimal actualHours;
   private Integer difficulty;
   private String notes;
+  // Bumped by every update; an update only succeeds against the version it was read at
+  private Integer version;
 
   private List<Material> materials = new LinkedList<>();
   private List<Step> steps = new LinkedList<>();
   private List<Category> categories = new LinkedList<>();
 
+  // Fields changed since the project was loaded or last written. A project that did not
+  // come from the database counts every field as changed. The setters, the version and the
+  // dirty fields are guarded by this, as a write-behind flush finishes on another thread.
+  private final Set<Field> dirtyFields = EnumSet.allOf(Field.class);
+
   // ✅ Added missing no-arg constructor
   public Project() {
   }
@@ -41,7 +59,8 @@ public class Project {
     return projectName;
   }
 
-  public void setProjectName(String projectName) {
+  public synchronized void setProjectName(String projectName) {
+    markDirty(Field.PROJECT_NAME, this.projectName, projectName);
     this.projectName = projectName;
   }
 
@@ -49,7 +68,8 @@ public class Project {
     return estimatedHours;
   }
 
-  public void setEstimatedHours(BigDecimal estimatedHours) {
+  public synchronized void setEstimatedHours(BigDecimal estimatedHours) {
+    markDirty(Field.ESTIMATED_HOURS, this.estimatedHours, estimatedHours);
     this.estimatedHours = estimatedHours;
   }
 
@@ -57,7 +77,8 @@ public class Project {
     return actualHours;
   }
 
-  public void setActualHours(BigDecimal actualHours) {
+  public synchronized void setActualHours(BigDecimal actualHours) {
+    markDirty(Field.ACTUAL_HOURS, this.actualHours, actualHours);
     this.actualHours = actualHours;
   }
 
@@ -65,7 +86,8 @@ public class Project {
     return difficulty;
   }
 
-  public void setDifficulty(Integer difficulty) {
+  public synchronized void setDifficulty(Integer difficulty) {
+    markDirty(Field.DIFFICULTY, this.difficulty, difficulty);
     this.difficulty = difficulty;
   }
 
@@ -73,10 +95,113 @@ public class Project {
     return notes;
   }
 
-  public void setNotes(String notes) {
+  public synchronized void setNotes(String notes) {
+    markDirty(Field.NOTES, this.notes, notes);
     this.notes = notes;
   }
 
+  public synchronized Integer getVersion() {
+    return version;
+  }
+
+  public synchronized void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  // A deep copy: the fields, version and dirty fields, and copies of every step, material
+  // and category, so changes to one never show in the other
+  public synchronized Project copy() {
+    Project copy = new Project(projectName, estimatedHours, actualHours, difficulty, notes);
+    copy.projectId = projectId;
+    copy.version = version;
+    copy.dirtyFields.retainAll(dirtyFields);
+
+    for (Step step : steps) {
+      Step stepCopy = new Step(step.getProjectId(), step.getStepText(), step.getStepOrder());
+      stepCopy.setStepId(step.getStepId());
+      copy.steps.add(stepCopy);
+    }
+    for (Material material : materials) {
+      Material materialCopy = new Material();
+      materialCopy.setMaterialId(material.getMaterialId());
+      materialCopy.setProjectId(material.getProjectId());
+      materialCopy.setMaterialName(material.getMaterialName());
+      materialCopy.setNumRequired(material.getNumRequired());
+      materialCopy.setCost(material.getCost());
+      copy.materials.add(materialCopy);
+    }
+    for (Category category : categories) {
+      Category categoryCopy = new Category();
+      categoryCopy.setCategoryId(category.getCategoryId());
+      categoryCopy.setCategoryName(category.getCategoryName());
+      copy.categories.add(categoryCopy);
+    }
+    return copy;
+  }
+
+  // The fields changed since the project was loaded or last written
+  public synchronized Set<Field> getDirtyFields() {
+    return Collections.unmodifiableSet(EnumSet.copyOf(dirtyFields));
+  }
+
+  public synchronized boolean isDirty() {
+    return !dirtyFields.isEmpty();
+  }
+
+  // Called by the DAO once the project matches its database row
+  public synchronized void markClean() {
+    dirtyFields.clear();
+  }
+
+  // Copy the changed fields' current values and the version they are based on. The
+  // fields stay dirty until the copy has been written; see ProjectUpdate.markWritten.
+  public synchronized ProjectUpdate takeChanges() {
+    Map<Field, Object> values = new EnumMap<>(Field.class);
+    for (Field field : dirtyFields) {
+      values.put(field, getValue(field));
+    }
+    return new ProjectUpdate(this, projectId, version, values);
+  }
+
+  // Called once an update taken from this project has been written. Only fields that
+  // still hold the written value become clean, so a change made while the write was in
+  // flight is written by the next update. The version is bumped if it is still the one
+  // the update was based on.
+  synchronized void markWritten(ProjectUpdate update) {
+    for (Field field : update.getFields()) {
+      if (Objects.equals(getValue(field), update.getValue(field))) {
+        dirtyFields.remove(field);
+      }
+    }
+    if (version != null && version.equals(update.getVersion())) {
+      version = version + 1;
+    }
+  }
+
+  // The current value of an updatable field
+  public synchronized Object getValue(Field field) {
+    switch (field) {
+      case PROJECT_NAME:
+        return projectName;
+      case ESTIMATED_HOURS:
+        return estimatedHours;
+      case ACTUAL_HOURS:
+        return actualHours;
+      case DIFFICULTY:
+        return difficulty;
+      case NOTES:
+        return notes;
+      default:
+        throw new IllegalArgumentException("Unknown field " + field);
+    }
+  }
+
+  private void markDirty(Field field, Object oldValue, Object newValue) {
+    if (!Objects.equals(oldValue, newValue)) {
+      dirtyFields.add(field);
+    }
+  }
+
   public List<Material> getMaterials() {
     return materials;
   }
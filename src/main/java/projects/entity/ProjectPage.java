@@ -0,0 +1,31 @@
+package projects.entity;
+
+import java.util.List;
+
+// One page of a project listing. The next page token is null on the last page.
+public class ProjectPage {
+  private final List<ProjectSummary> projects;
+  private final String nextPageToken;
+
+  public ProjectPage(List<ProjectSummary> projects, String nextPageToken) {
+    this.projects = projects;
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<ProjectSummary> getProjects() {
+    return projects;
+  }
+
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public boolean hasNextPage() {
+    return nextPageToken != null;
+  }
+
+  @Override
+  public String toString() {
+    return "projects=" + projects.size() + ", nextPageToken=" + nextPageToken;
+  }
+}
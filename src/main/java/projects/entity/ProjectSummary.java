@@ -0,0 +1,91 @@
+package projects.entity;
+
+import java.math.BigDecimal;
+
+// The few project columns a listing needs. Leaves out notes and the child lists so
+// listings don't pull large TEXT values over the wire.
+public class ProjectSummary {
+  private Integer projectId;
+  private String projectName;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+  private Integer difficulty;
+  private BigDecimal totalCost;
+  private Integer stepCount;
+  private Integer materialCount;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  // Actual minus estimated hours, or null if either is unknown
+  public BigDecimal getHoursVariance() {
+    return actualHours == null || estimatedHours == null ? null : actualHours.subtract(estimatedHours);
+  }
+
+  public Integer getDifficulty() {
+    return difficulty;
+  }
+
+  public void setDifficulty(Integer difficulty) {
+    this.difficulty = difficulty;
+  }
+
+  public BigDecimal getTotalCost() {
+    return totalCost;
+  }
+
+  public void setTotalCost(BigDecimal totalCost) {
+    this.totalCost = totalCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public void setStepCount(Integer stepCount) {
+    this.stepCount = stepCount;
+  }
+
+  public Integer getMaterialCount() {
+    return materialCount;
+  }
+
+  public void setMaterialCount(Integer materialCount) {
+    this.materialCount = materialCount;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", name=" + projectName + ", cost=" + totalCost
+        + ", steps=" + stepCount + ", materials=" + materialCount;
+  }
+}
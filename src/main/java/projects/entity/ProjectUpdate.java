@@ -0,0 +1,96 @@
+package projects.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The changed fields of a project, their values and the version they are based on, as
+// taken by Project.takeChanges(). Immutable, so it can be written on another thread while
+// the project itself keeps changing.
+public class ProjectUpdate {
+  private final Integer projectId;
+  private final Integer version;
+  private final Map<Project.Field, Object> values;
+  // The updates taken from projects that this one writes, oldest first: just this one,
+  // unless others were merged into it
+  private final List<ProjectUpdate> taken;
+  private final Project source;
+
+  ProjectUpdate(Project source, Integer projectId, Integer version, Map<Project.Field, Object> values) {
+    this.source = source;
+    this.projectId = projectId;
+    this.version = version;
+    this.values = Collections.unmodifiableMap(values);
+    this.taken = List.of(this);
+  }
+
+  private ProjectUpdate(Integer projectId, Integer version, Map<Project.Field, Object> values,
+      List<ProjectUpdate> taken) {
+    this.source = null;
+    this.projectId = projectId;
+    this.version = version;
+    this.values = Collections.unmodifiableMap(values);
+    this.taken = Collections.unmodifiableList(taken);
+  }
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  // The version the update only applies to, or null to write whatever the version
+  public Integer getVersion() {
+    return version;
+  }
+
+  public Set<Project.Field> getFields() {
+    return values.keySet();
+  }
+
+  public Object getValue(Project.Field field) {
+    return values.get(field);
+  }
+
+  public boolean isEmpty() {
+    return values.isEmpty();
+  }
+
+  // One update writing this one's changes and then the later one's. It is checked
+  // against the older version, so it conflicts if either update was based on stale data.
+  public ProjectUpdate mergeWith(ProjectUpdate later) {
+    Map<Project.Field, Object> merged = new EnumMap<>(Project.Field.class);
+    merged.putAll(values);
+    merged.putAll(later.values);
+    List<ProjectUpdate> all = new ArrayList<>(taken);
+    all.addAll(later.taken);
+    return new ProjectUpdate(projectId, version != null ? version : later.version, merged, all);
+  }
+
+  // The same update based on the version after the given update of the same project was
+  // written, if it was based on the version that update replaced
+  public ProjectUpdate rebaseOnto(ProjectUpdate written) {
+    if (version == null || !version.equals(written.version)) {
+      return this;
+    }
+    List<ProjectUpdate> rebased = new ArrayList<>();
+    for (ProjectUpdate update : taken) {
+      rebased.add(update.version != null && update.version.equals(version)
+          ? new ProjectUpdate(update.source, projectId, version + 1, update.values) : update);
+    }
+    return new ProjectUpdate(projectId, version + 1, values, rebased);
+  }
+
+  // Tell the projects the changes were taken from that they have been written
+  public void markWritten() {
+    for (ProjectUpdate update : taken) {
+      update.source.markWritten(update);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", version=" + version + ", fields=" + values.keySet();
+  }
+}
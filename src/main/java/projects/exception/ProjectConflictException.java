@@ -0,0 +1,24 @@
+package projects.exception;
+
+// Thrown when a project update was based on a version that someone else has already
+// changed. The caller should reload the project, reapply its change and try again.
+@SuppressWarnings("serial")
+public class ProjectConflictException extends DbException {
+    private final Integer projectId;
+    private final Integer expectedVersion;
+
+    public ProjectConflictException(Integer projectId, Integer expectedVersion) {
+        super("Project with ID " + projectId + " was changed by someone else (expected version "
+                + expectedVersion + ")");
+        this.projectId = projectId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public Integer getProjectId() {
+        return projectId;
+    }
+
+    public Integer getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,97 @@
+package projects.log;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes log events on a background thread. Callers only put the event into a bounded
+// ring buffer and never wait on the console. When the buffer is full the event is
+// dropped and counted rather than slowing the caller down; the count is reported with
+// the next batch that gets written.
+public class AsyncAppender {
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final int MAX_BATCH = 256;
+
+    private final ArrayBlockingQueue<LogEvent> buffer;
+    private final PrintStream out;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AsyncAppender(int capacity, PrintStream out) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.out = out;
+        this.writer = new Thread(this::writeLoop, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void append(LogEvent event) {
+        if (!buffer.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Stop the writer thread after it has written everything already buffered
+    public void close() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<LogEvent> batch = new ArrayList<>(MAX_BATCH);
+        long reportedDrops = 0;
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                LogEvent first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // close() wakes us up; finish whatever is left in the buffer
+            }
+            buffer.drainTo(batch, MAX_BATCH - batch.size());
+
+            long drops = dropped.get();
+            if (drops > reportedDrops) {
+                out.println(TIME_FORMAT.format(Instant.now()) + " WARN  [async-log-writer] "
+                        + AsyncAppender.class.getSimpleName() + " - " + (drops - reportedDrops)
+                        + " log messages dropped because the buffer was full");
+                reportedDrops = drops;
+            }
+
+            for (LogEvent event : batch) {
+                write(event);
+            }
+            out.flush();
+            batch.clear();
+        }
+    }
+
+    private void write(LogEvent event) {
+        out.println(TIME_FORMAT.format(Instant.ofEpochMilli(event.timestamp)) + " "
+                + String.format("%-5s", event.level) + " [" + event.threadName + "] "
+                + event.loggerName + " - " + event.message);
+        if (event.error != null) {
+            event.error.printStackTrace(out);
+        }
+    }
+}
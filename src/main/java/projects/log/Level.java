@@ -0,0 +1,6 @@
+package projects.log;
+
+// Log levels from most to least detailed. OFF turns logging off entirely.
+public enum Level {
+    DEBUG, INFO, WARN, ERROR, OFF
+}
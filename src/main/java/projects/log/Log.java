@@ -0,0 +1,39 @@
+package projects.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Entry point for logging. The level comes from the projects.log.level system property
+// (DEBUG, INFO, WARN, ERROR or OFF, INFO by default) and can be changed at runtime.
+// All loggers share one AsyncAppender writing to standard output, which is flushed when
+// the JVM exits.
+public final class Log {
+    private static final int BUFFER_CAPACITY = 8192;
+
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static volatile Level level = Level.valueOf(System.getProperty("projects.log.level", "INFO").toUpperCase());
+    private static final AsyncAppender APPENDER = new AsyncAppender(BUFFER_CAPACITY, System.out);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(APPENDER::close, "async-log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    public static Logger getLogger(Class<?> type) {
+        return LOGGERS.computeIfAbsent(type.getSimpleName(), Logger::new);
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    static AsyncAppender appender() {
+        return APPENDER;
+    }
+}
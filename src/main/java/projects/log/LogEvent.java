@@ -0,0 +1,20 @@
+package projects.log;
+
+// One log message waiting to be written
+class LogEvent {
+    final long timestamp;
+    final Level level;
+    final String threadName;
+    final String loggerName;
+    final String message;
+    final Throwable error;
+
+    LogEvent(long timestamp, Level level, String threadName, String loggerName, String message, Throwable error) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.threadName = threadName;
+        this.loggerName = loggerName;
+        this.message = message;
+        this.error = error;
+    }
+}
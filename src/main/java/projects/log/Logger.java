@@ -0,0 +1,139 @@
+package projects.log;
+
+// A named logger. Every method checks the level before building the message, so a
+// disabled call costs one comparison. Messages use {} placeholders which are only
+// filled in when the level is enabled, e.g.
+//
+//     log.debug("Found {} steps for project {}", steps.size(), projectId);
+//
+// Enabled messages are handed to the shared AsyncAppender and written by its own thread.
+public class Logger {
+    private final String name;
+
+    Logger(String name) {
+        this.name = name;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(Log.getLevel()) >= 0 && level != Level.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, message, null);
+        }
+    }
+
+    public void debug(String pattern, Object arg) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, format(pattern, arg), null);
+        }
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, format(pattern, arg1, arg2), null);
+        }
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, message, null);
+        }
+    }
+
+    public void info(String pattern, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, format(pattern, arg), null);
+        }
+    }
+
+    public void info(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, format(pattern, arg1, arg2), null);
+        }
+    }
+
+    public void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, message, null);
+        }
+    }
+
+    public void warn(String pattern, Object arg) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, format(pattern, arg), null);
+        }
+    }
+
+    public void warn(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, format(pattern, arg1, arg2), null);
+        }
+    }
+
+    public void warn(String message, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, message, error);
+        }
+    }
+
+    public void error(String message) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, message, null);
+        }
+    }
+
+    public void error(String pattern, Object arg) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format(pattern, arg), null);
+        }
+    }
+
+    public void error(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format(pattern, arg1, arg2), null);
+        }
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, message, error);
+        }
+    }
+
+    public void error(String pattern, Object arg1, Object arg2, Object arg3, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format(pattern, arg1, arg2, arg3), error);
+        }
+    }
+
+    // Hand an enabled message to the appender
+    private void log(Level level, String message, Throwable error) {
+        Log.appender().append(new LogEvent(System.currentTimeMillis(), level, Thread.currentThread().getName(),
+                name, message, error));
+    }
+
+    // Replace the first {} in the pattern with the first argument, the second with the
+    // second, and so on
+    private static String format(String pattern, Object... args) {
+        StringBuilder builder = new StringBuilder(pattern.length() + 32);
+        int argIndex = 0;
+        int from = 0;
+
+        while (argIndex < args.length) {
+            int at = pattern.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            builder.append(pattern, from, at).append(args[argIndex++]);
+            from = at + 2;
+        }
+        builder.append(pattern, from, pattern.length());
+        return builder.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package projects.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import projects.log.Log;
+import projects.log.Logger;
+
+// The registry of per-operation metrics for the data access layer. Each operation is
+// registered as a JMX MBean under "projects:type=DaoMetrics,operation=<name>" the first
+// time it is used, and the whole table can be printed on a timer with startReporting.
+public class DaoMetrics {
+    private static final Logger LOG = Log.getLogger(DaoMetrics.class);
+
+    // Name used for the time spent waiting to borrow a pooled connection
+    public static final String CONNECTION_ACQUIRE = "connectionAcquire";
+
+    private static final DaoMetrics INSTANCE = new DaoMetrics();
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reporter = null;
+
+    public static DaoMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // The metrics for an operation, created and registered with JMX on first use
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, this::register);
+    }
+
+    // Run a call, recording its latency and counting it as an error if it throws
+    public <T> T measure(String name, Function<OperationMetrics, T> call) {
+        OperationMetrics metrics = operation(name);
+        long start = System.nanoTime();
+        try {
+            return call.apply(metrics);
+        } catch (RuntimeException | Error e) {
+            metrics.addError();
+            throw e;
+        } finally {
+            metrics.recordLatencyNanos(System.nanoTime() - start);
+        }
+    }
+
+    // Same as measure, for calls without a result
+    public void measureVoid(String name, Consumer<OperationMetrics> call) {
+        measure(name, metrics -> {
+            call.accept(metrics);
+            return null;
+        });
+    }
+
+    // A text table of every operation, sorted by name
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-22s %9s %7s %9s %10s %10s %9s %9s %9s %9s %9s%n",
+                "Operation", "Count", "Errors", "Queries", "Rows read", "Rows wrtn",
+                "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        for (OperationMetrics metrics : new TreeMap<>(operations).values()) {
+            builder.append(metrics).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    // Print the table every periodMillis until stopReporting is called
+    public synchronized void startReporting(long periodMillis, PrintStream out) {
+        stopReporting();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dao-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> out.print(dump()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    public void resetAll() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    private OperationMetrics register(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("projects:type=DaoMetrics,operation=" + name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            // Metrics still work without JMX
+            LOG.warn("Could not register metrics for {}: {}", name, e.getMessage());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,113 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and a latency histogram for one logical operation, such as ProjectDao.getProject
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public void recordLatencyNanos(long nanos) {
+        latency.recordNanos(nanos);
+    }
+
+    public void addError() {
+        errors.incrementAndGet();
+    }
+
+    // Count statements sent to the database; a multi-statement round trip counts once
+    public void addQueries(long count) {
+        queries.addAndGet(count);
+    }
+
+    public void addRowsRead(long count) {
+        rowsRead.addAndGet(count);
+    }
+
+    public void addRowsWritten(long count) {
+        rowsWritten.addAndGet(count);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.get();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMicros() / 1_000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileMicros(50) / 1_000.0;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latency.getPercentileMicros(95) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileMicros(99) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMicros() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+        queries.set(0);
+        rowsRead.set(0);
+        rowsWritten.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-22s %9d %7d %9d %10d %10d %9.2f %9.2f %9.2f %9.2f %9.2f",
+                name, getCount(), getErrors(), getQueries(), getRowsRead(), getRowsWritten(),
+                getMeanMillis(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+    }
+}
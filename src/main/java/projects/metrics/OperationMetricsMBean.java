@@ -0,0 +1,28 @@
+package projects.metrics;
+
+// What JMX shows for one measured operation. Times are in milliseconds.
+public interface OperationMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getErrors();
+
+    long getQueries();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
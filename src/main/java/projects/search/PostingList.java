@@ -0,0 +1,69 @@
+package projects.search;
+
+import java.util.Arrays;
+
+// The documents that contain one term, kept as parallel int arrays sorted by document
+// number, with the term's weighted frequency in each document. No boxing, and a lookup
+// is a binary search.
+final class PostingList {
+    private int[] docs = new int[4];
+    private int[] weights = new int[4];
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    int weight(int index) {
+        return weights[index];
+    }
+
+    // The backing arrays, valid up to size() until the list next changes
+    int[] docs() {
+        return docs;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    // The position of the document at or after from, or a negative value if it isn't here
+    int indexOf(int doc, int from) {
+        return Arrays.binarySearch(docs, from, size, doc);
+    }
+
+    // Add the document, or replace its weight if it is already here. New documents get
+    // increasing numbers, so this is almost always an append.
+    void put(int doc, int weight) {
+        int index = size > 0 && docs[size - 1] < doc ? -size - 1 : indexOf(doc, 0);
+        if (index >= 0) {
+            weights[index] = weight;
+            return;
+        }
+
+        index = -index - 1;
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(docs, index, docs, index + 1, size - index);
+        System.arraycopy(weights, index, weights, index + 1, size - index);
+        docs[index] = doc;
+        weights[index] = weight;
+        size++;
+    }
+
+    void remove(int doc) {
+        int index = indexOf(doc, 0);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,31 @@
+package projects.search;
+
+// One project found by a search, with its relevance score (higher is better)
+public class SearchHit {
+    private final Integer projectId;
+    private final String projectName;
+    private final float score;
+
+    public SearchHit(Integer projectId, String projectName, float score) {
+        this.projectId = projectId;
+        this.projectName = projectName;
+        this.score = score;
+    }
+
+    public Integer getProjectId() {
+        return projectId;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "ID=" + projectId + ", name=" + projectName + ", score=" + score;
+    }
+}
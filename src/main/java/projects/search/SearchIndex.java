@@ -0,0 +1,322 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+// An in-memory inverted index over project names, notes, step text and material names.
+// Each project is one document with a dense document number, so every posting list is
+// a pair of int arrays. A search finds the projects that contain every query term,
+// treating the last term as a prefix so results appear while the user is still typing,
+// and ranks them by a TF-IDF score with name and material matches weighted up.
+//
+// Searches run in parallel; indexing a project briefly blocks them.
+public class SearchIndex {
+    // How much one occurrence of a term counts for, by where it occurs
+    private static final int NAME_WEIGHT = 4;
+    private static final int MATERIAL_WEIGHT = 2;
+    private static final int STEP_WEIGHT = 1;
+    private static final int NOTES_WEIGHT = 1;
+
+    // Term frequency saturation: repeating a term helps less and less
+    private static final float SATURATION = 1.2f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Integer, Integer> docByProject = new HashMap<>();
+    private int[] projectByDoc = new int[1024];
+    private String[] nameByDoc = new String[1024];
+    private String[][] termsByDoc = new String[1024][];
+    private int nextDoc = 0;
+
+    // Add the project, or replace what was indexed for it before
+    public void index(Project project) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, project.getProjectName(), NAME_WEIGHT);
+        addTerms(weights, project.getNotes(), NOTES_WEIGHT);
+        for (Step step : project.getSteps()) {
+            addTerms(weights, step.getStepText(), STEP_WEIGHT);
+        }
+        for (Material material : project.getMaterials()) {
+            addTerms(weights, material.getMaterialName(), MATERIAL_WEIGHT);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByProject.get(project.getProjectId());
+            if (doc == null) {
+                doc = newDoc(project.getProjectId());
+            } else {
+                removePostings(doc);
+            }
+
+            String[] terms = new String[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).put(doc, entry.getValue());
+                terms[i++] = entry.getKey();
+            }
+            termsByDoc[doc] = terms;
+            nameByDoc[doc] = project.getProjectName();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer projectId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByProject.remove(projectId);
+            if (doc != null) {
+                removePostings(doc);
+                termsByDoc[doc] = null;
+                nameByDoc[doc] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The number of indexed projects
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByProject.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The best matching projects, best first. Every term of the query must match.
+    public List<SearchHit> search(String query, int limit) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty() || limit < 1) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Match[] matches = new Match[terms.size()];
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                matches[i] = last ? matchPrefix(terms.get(i)) : matchTerm(terms.get(i));
+                if (matches[i].size == 0) {
+                    return new ArrayList<>();
+                }
+            }
+            return topHits(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Must hold the read lock. Walk the shortest match and look each of its documents up
+    // in the others, keeping the best limit documents in a small heap.
+    private List<SearchHit> topHits(Match[] matches, int limit) {
+        Arrays.sort(matches, Comparator.comparingInt(match -> match.size));
+        int[] from = new int[matches.length];
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(SearchHit::getScore));
+
+        Match shortest = matches[0];
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int doc = shortest.docs[i];
+            float score = shortest.score(i);
+
+            for (int m = 1; m < matches.length; m++) {
+                // Common terms often hold the very next document, so try that before searching
+                int index = from[m] < matches[m].size && matches[m].docs[from[m]] == doc
+                        ? from[m] : Arrays.binarySearch(matches[m].docs, from[m], matches[m].size, doc);
+                if (index < 0) {
+                    from[m] = -index - 1;
+                    continue candidates;
+                }
+                from[m] = index + 1;
+                score += matches[m].score(index);
+            }
+
+            if (best.size() < limit || score > best.peek().getScore()) {
+                best.add(new SearchHit(projectByDoc[doc], nameByDoc[doc], score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed()
+                .thenComparing(SearchHit::getProjectId));
+        return hits;
+    }
+
+    // Must hold the read lock. The documents containing the term, read straight from its
+    // posting list.
+    private Match matchTerm(String term) {
+        PostingList list = postings.get(term);
+        if (list == null) {
+            return new Match(new int[0], 0, new float[0]);
+        }
+        return new Match(list.docs(), list.size(), list.weights(), idf(list));
+    }
+
+    // Must hold the read lock. The documents containing any term that starts with the
+    // prefix, each scored by its best matching term. Every such term counts, however many
+    // there are: a short prefix costs at most one pass over a score per document.
+    private Match matchPrefix(String prefix) {
+        List<PostingList> lists = new ArrayList<>();
+        int total = 0;
+        for (PostingList list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            lists.add(list);
+            total += list.size();
+        }
+
+        if (lists.isEmpty()) {
+            return new Match(new int[0], 0, new float[0]);
+        }
+        if (lists.size() == 1) {
+            PostingList list = lists.get(0);
+            return new Match(list.docs(), list.size(), list.weights(), idf(list));
+        }
+        return total * 8L >= nextDoc ? mergeDense(lists) : mergeSorted(lists, total);
+    }
+
+    // Merge through a score per document number; cheapest when the lists cover a good
+    // share of all documents
+    private Match mergeDense(List<PostingList> lists) {
+        float[] best = new float[nextDoc];
+        for (PostingList list : lists) {
+            float idf = idf(list);
+            for (int i = 0; i < list.size(); i++) {
+                int doc = list.doc(i);
+                best[doc] = Math.max(best[doc], score(idf, list.weight(i)));
+            }
+        }
+
+        int size = 0;
+        for (float score : best) {
+            if (score > 0) {
+                size++;
+            }
+        }
+        int[] docs = new int[size];
+        float[] scores = new float[size];
+        int n = 0;
+        for (int doc = 0; doc < best.length; doc++) {
+            if (best[doc] > 0) {
+                docs[n] = doc;
+                scores[n++] = best[doc];
+            }
+        }
+        return new Match(docs, size, scores);
+    }
+
+    // Merge by sorting (doc, score) pairs packed into longs, so one primitive sort groups
+    // each document's entries together with its highest score last (positive float bits
+    // sort in the same order as the floats)
+    private Match mergeSorted(List<PostingList> lists, int total) {
+        long[] entries = new long[total];
+        int n = 0;
+        for (PostingList list : lists) {
+            float idf = idf(list);
+            for (int i = 0; i < list.size(); i++) {
+                entries[n++] = ((long) list.doc(i) << 32)
+                        | (Float.floatToIntBits(score(idf, list.weight(i))) & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(entries);
+
+        int[] docs = new int[total];
+        float[] scores = new float[total];
+        int size = 0;
+        for (int i = 0; i < total; i++) {
+            if (i + 1 < total && (entries[i + 1] >>> 32) == (entries[i] >>> 32)) {
+                continue;
+            }
+            docs[size] = (int) (entries[i] >>> 32);
+            scores[size] = Float.intBitsToFloat((int) entries[i]);
+            size++;
+        }
+        return new Match(docs, size, scores);
+    }
+
+    // Must hold the read lock. Rare terms say more about a document than common ones.
+    private float idf(PostingList list) {
+        return (float) Math.log(1.0 + (double) docByProject.size() / list.size());
+    }
+
+    private static float score(float idf, int weight) {
+        return idf * weight / (weight + SATURATION);
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String term : Tokenizer.tokenize(text)) {
+            weights.merge(term, weight, Integer::sum);
+        }
+    }
+
+    // Must hold the write lock
+    private int newDoc(Integer projectId) {
+        int doc = nextDoc++;
+        if (doc == projectByDoc.length) {
+            projectByDoc = Arrays.copyOf(projectByDoc, doc * 2);
+            nameByDoc = Arrays.copyOf(nameByDoc, doc * 2);
+            termsByDoc = Arrays.copyOf(termsByDoc, doc * 2);
+        }
+        projectByDoc[doc] = projectId;
+        docByProject.put(projectId, doc);
+        return doc;
+    }
+
+    // Must hold the write lock
+    private void removePostings(int doc) {
+        for (String term : termsByDoc[doc]) {
+            PostingList list = postings.get(term);
+            list.remove(doc);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Documents sorted by number, with one query term's score for each. Scores are either
+    // precomputed or worked out from the posting weights as they are needed.
+    private static final class Match {
+        private final int[] docs;
+        private final int size;
+        private final float[] scores;
+        private final int[] weights;
+        private final float idf;
+
+        private Match(int[] docs, int size, float[] scores) {
+            this.docs = docs;
+            this.size = size;
+            this.scores = scores;
+            this.weights = null;
+            this.idf = 0;
+        }
+
+        private Match(int[] docs, int size, int[] weights, float idf) {
+            this.docs = docs;
+            this.size = size;
+            this.scores = null;
+            this.weights = weights;
+            this.idf = idf;
+        }
+
+        private float score(int index) {
+            return scores != null ? scores[index] : SearchIndex.score(idf, weights[index]);
+        }
+    }
+}
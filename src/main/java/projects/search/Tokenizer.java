@@ -0,0 +1,34 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits text into search terms: lowercase runs of letters and digits, at least
+// MIN_TERM_LENGTH characters long
+final class Tokenizer {
+    static final int MIN_TERM_LENGTH = 2;
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inTerm && start < 0) {
+                start = i;
+            } else if (!inTerm && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase());
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,143 @@
+package projects.service;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+// Non-blocking front end for ProjectService. Each call runs on a bounded pool of worker
+// threads and returns a CompletableFuture straight away. At most maxConcurrency calls run
+// at once and at most maxQueued more wait; beyond that calls fail fast with a
+// DbException instead of piling up threads. A call that runs past its operation's
+// timeout fails with a TimeoutException and its worker is interrupted.
+public class AsyncProjectService {
+    // The operations that can be given their own timeout
+    public enum Operation {
+        ADD_PROJECT, SAVE_PROJECT, GET_PROJECT, GET_PROJECTS, GET_PROJECT_PAGE,
+        UPDATE_PROJECT, DELETE_PROJECT, ADD_STEP, GET_STEPS
+    }
+
+    private final ProjectService service;
+    private final ThreadPoolExecutor executor;
+    private final Map<Operation, Long> timeouts = new EnumMap<>(Operation.class);
+    private final long defaultTimeoutMillis;
+
+    public AsyncProjectService(ProjectService service, int maxConcurrency, int maxQueued,
+                               long defaultTimeoutMillis) {
+        this.service = service;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), runnable -> {
+                    Thread thread = new Thread(runnable, "project-service-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Give one operation a timeout other than the default
+    public synchronized void setTimeout(Operation operation, long timeoutMillis) {
+        timeouts.put(operation, timeoutMillis);
+    }
+
+    public CompletableFuture<Void> addProjectAsync(Project project) {
+        return submit(Operation.ADD_PROJECT, () -> {
+            service.addProject(project);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> saveProjectAsync(Project project) {
+        return submit(Operation.SAVE_PROJECT, () -> {
+            service.saveProject(project);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Project> getProjectAsync(Integer projectId) {
+        return submit(Operation.GET_PROJECT, () -> service.getProject(projectId));
+    }
+
+    public CompletableFuture<List<Project>> getProjectsAsync(Collection<Integer> projectIds) {
+        return submit(Operation.GET_PROJECTS, () -> service.getProjects(projectIds));
+    }
+
+    public CompletableFuture<ProjectPage> getProjectPageAsync(String pageToken, int pageSize) {
+        return submit(Operation.GET_PROJECT_PAGE, () -> service.getProjectPage(pageToken, pageSize));
+    }
+
+    public CompletableFuture<Void> updateProjectAsync(Project project) {
+        return submit(Operation.UPDATE_PROJECT, () -> {
+            service.updateProject(project);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteProjectAsync(Integer projectId) {
+        return submit(Operation.DELETE_PROJECT, () -> {
+            service.deleteProject(projectId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addStepAsync(Step step) {
+        return submit(Operation.ADD_STEP, () -> {
+            service.addStep(step);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Step>> getStepsAsync(Integer projectId) {
+        return submit(Operation.GET_STEPS, () -> service.getSteps(projectId));
+    }
+
+    // Stop accepting calls; calls already accepted still run
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private synchronized long timeoutFor(Operation operation) {
+        return timeouts.getOrDefault(operation, defaultTimeoutMillis);
+    }
+
+    // Run the work on the pool and complete the returned future with its outcome
+    private <T> CompletableFuture<T> submit(Operation operation, Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new DbException("Too many requests in progress, rejected " + operation, e));
+            return result;
+        }
+
+        result.orTimeout(timeoutFor(operation), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package projects.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import projects.entity.Project;
+
+// A bounded in-memory cache of full projects keyed by project ID. The least recently
+// used entry is evicted when the cache is full, and entries older than the time to live
+// are treated as missing. The cache keeps its own copy of each project and hands every
+// caller a fresh copy, so a caller changing its project (before saving it through the
+// service, which drops the entry) is never seen by other readers.
+//
+// A project read from the database is only cached if its entry wasn't invalidated while
+// it was being read; otherwise a read that started before a write could put the old
+// project back after the write dropped it. Loads go through startLoad and finishLoad.
+public class ProjectCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered so the eldest entry is the least recently used (guarded by this)
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Loads in progress by project ID, so invalidations during a load can be seen
+    // (guarded by this). Entries go away when the last load of a project finishes.
+    private final Map<Integer, Load> loads = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ProjectCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Returns the cached project, or null if it is missing or expired
+    public synchronized Project get(Integer projectId) {
+        Entry entry = entries.get(projectId);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt >= ttlMillis) {
+            entries.remove(projectId);
+            evictions.incrementAndGet();
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.project.copy();
+    }
+
+    // Call before reading a project from the database. Returns the generation to pass to
+    // finishLoad.
+    public synchronized long startLoad(Integer projectId) {
+        Load load = loads.computeIfAbsent(projectId, id -> new Load());
+        load.readers++;
+        return load.generation;
+    }
+
+    // Call after reading a project, whether or not it was found or the read failed.
+    // Caches the project only if it wasn't invalidated since startLoad.
+    public synchronized void finishLoad(Integer projectId, long generation, Project project) {
+        Load load = loads.get(projectId);
+        if (--load.readers == 0) {
+            loads.remove(projectId);
+        }
+        if (project != null && load.generation == generation) {
+            put(project);
+        }
+    }
+
+    private void put(Project project) {
+        entries.put(project.getProjectId(), new Entry(project.copy(), System.currentTimeMillis()));
+
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidate(Integer projectId) {
+        entries.remove(projectId);
+        Load load = loads.get(projectId);
+        if (load != null) {
+            load.generation++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        loads.values().forEach(load -> load.generation++);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions();
+    }
+
+    // The loads of one project in progress and how often it was invalidated meanwhile
+    private static class Load {
+        private long generation;
+        private int readers;
+    }
+
+    private static class Entry {
+        private final Project project;
+        private final long loadedAt;
+
+        private Entry(Project project, long loadedAt) {
+            this.project = project;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,53 +1,391 @@
 package projects.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import projects.dao.AggregateLoadMode;
+import projects.dao.DbConnection;
 import projects.dao.ProjectDao;
+import projects.dao.QueryPlanVerifier;
+import projects.dao.SchemaMigrator;
+import projects.entity.Category;
+import projects.entity.CategoryCount;
+import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectPage;
 import projects.entity.Step;
+import projects.exception.DbException;
+import projects.exception.ProjectConflictException;
+import projects.log.Log;
+import projects.log.Logger;
+import projects.search.SearchHit;
 
 public class ProjectService {
+    private static final Logger LOG = Log.getLogger(ProjectService.class);
+
+    // How often updateProject(id, change) tries before giving up on a contended project
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final long RETRY_BACKOFF_MILLIS = 5;
+
+    // How long a write takes at most to show up in search results
+    private static final long SEARCH_INDEX_DELAY_MILLIS = 200;
+
     // This class talks to the database through ProjectDao
     private ProjectDao dao = new ProjectDao();
+    // When set, step inserts and project updates are buffered and written in batches
+    private WriteBehindBuffer writeBehind = null;
+    // When set, getProject is served from memory where possible
+    private ProjectCache cache = null;
+    // When set, projects can be found by the words in them. Set before the index is built,
+    // so writes made while it is being built are noted and indexed afterwards.
+    private volatile SearchIndexer searchIndexer = null;
+
+    // Cache up to maxEntries full projects for ttlMillis each. Entries are dropped
+    // whenever the service changes the project or its steps, materials or categories.
+    public void enableCache(int maxEntries, long ttlMillis) {
+        LOG.debug("Enabling project cache");
+        cache = new ProjectCache(maxEntries, ttlMillis);
+    }
+
+    // The project cache with its hit, miss and eviction counts, or null if caching is off
+    public ProjectCache getCache() {
+        return cache;
+    }
+
+    // Buffer addStep and updateProject calls and write them in batched transactions.
+    // A flush happens once flushThreshold writes are pending or every flushIntervalMillis.
+    // Callers block for up to enqueueTimeoutMillis when capacity writes are pending.
+    // Reads do not see buffered writes until they are flushed; call flushWrites() first
+    // when that matters.
+    public void enableWriteBehind(int capacity, int flushThreshold, long flushIntervalMillis,
+                                  long enqueueTimeoutMillis) {
+        if (writeBehind != null) {
+            throw new IllegalStateException("Write-behind is already enabled");
+        }
+        LOG.debug("Enabling write-behind buffering");
+        writeBehind = new WriteBehindBuffer(dao, capacity, flushThreshold, flushIntervalMillis,
+                enqueueTimeoutMillis, projectId -> {
+                    invalidate(projectId);
+                    reindex(projectId);
+                });
+    }
+
+    // Bring the database schema up to date. With -Dprojects.db.verifyPlans=true the plan
+    // of every DAO query is checked afterwards, failing startup if one lacks an index.
+    public void migrateSchema() {
+        new SchemaMigrator().migrate();
+        if (Boolean.getBoolean("projects.db.verifyPlans")) {
+            new QueryPlanVerifier().verify();
+        }
+    }
+
+    // Index every project's name, notes, steps and materials in memory for search(). The
+    // index is built now and then follows the writes made through this service, a short
+    // moment behind.
+    public void enableSearch() {
+        if (searchIndexer != null) {
+            throw new IllegalStateException("Search is already enabled");
+        }
+        LOG.debug("Building search index");
+        SearchIndexer indexer = new SearchIndexer(dao, SEARCH_INDEX_DELAY_MILLIS);
+        searchIndexer = indexer;
+        try {
+            indexer.rebuild();
+        } catch (RuntimeException e) {
+            searchIndexer = null;
+            indexer.close();
+            throw e;
+        }
+    }
+
+    // Find the projects containing every word of the query, best match first. The last
+    // word also matches longer words it is the start of.
+    public List<SearchHit> search(String query, int limit) {
+        SearchIndexer indexer = searchIndexer;
+        if (indexer == null || !indexer.isBuilt()) {
+            throw new IllegalStateException("Search is not enabled");
+        }
+        LOG.debug("Searching for '{}'", query);
+        return indexer.getIndex().search(query, limit);
+    }
+
+    // Write any buffered step inserts and project updates now
+    public void flushWrites() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    // Choose how full projects are loaded: batched, sequential or concurrent queries
+    public void setLoadMode(AggregateLoadMode loadMode) {
+        dao.setLoadMode(loadMode);
+    }
 
     // Add a new project
     public void addProject(Project project) {
-        System.out.println("Service: Adding new project - " + project.getProjectName());
+        LOG.debug("Adding new project - {}", project.getProjectName());
         dao.addProject(project);
+        reindex(project.getProjectId());
+    }
+
+    // Save a new project with its steps, materials and categories in one transaction
+    public void saveProject(Project project) {
+        LOG.debug("Saving project with children - {}", project.getProjectName());
+        dao.saveProject(project);
+        reindex(project.getProjectId());
     }
 
     // Get all projects
     public List<Project> getAllProjects() {
-        System.out.println("Service: Getting all projects from database");
+        LOG.debug("Getting all projects from database");
         return dao.getAllProjects();
     }
 
+    // Get one page of project summaries; pass null for the first page
+    public ProjectPage getProjectPage(String pageToken, int pageSize) {
+        LOG.debug("Getting a page of {} projects", pageSize);
+        return dao.getProjectPage(pageToken, pageSize);
+    }
+
+    // Get a page of projects, most expensive first
+    public ProjectPage getProjectPageByCost(String pageToken, int pageSize) {
+        LOG.debug("Getting a page of {} projects by cost", pageSize);
+        return dao.getProjectPageByCost(pageToken, pageSize);
+    }
+
+    // Stream all projects for large exports; the caller must close the stream
+    public Stream<Project> streamAllProjects() {
+        LOG.debug("Streaming all projects from database");
+        return dao.streamAllProjects();
+    }
+
     // Get one specific project
     public Project getProject(Integer projectId) {
-        System.out.println("Service: Getting project with ID " + projectId);
-        return dao.getProject(projectId);
+        LOG.debug("Getting project with ID {}", projectId);
+        if (cache == null) {
+            return dao.getProject(projectId);
+        }
+
+        Project project = cache.get(projectId);
+        if (project == null) {
+            long generation = cache.startLoad(projectId);
+            try {
+                project = dao.getProject(projectId);
+            } finally {
+                cache.finishLoad(projectId, generation, project);
+            }
+        }
+        return project;
     }
 
-    // Update an existing project
+    // Get many full projects in one go, in the order of the given IDs
+    public List<Project> getProjects(Collection<Integer> projectIds) {
+        LOG.debug("Getting {} projects", projectIds.size());
+        return dao.getProjects(projectIds);
+    }
+
+    // Update an existing project. Throws ProjectConflictException if the project has
+    // changed since it was read; with write-behind on, the update is dropped instead.
     public void updateProject(Project project) {
-        System.out.println("Service: Updating project - " + project.getProjectName());
-        dao.updateProject(project);
+        LOG.debug("Updating project - {}", project.getProjectName());
+        if (writeBehind != null) {
+            // Drop the entry now in case the caller changed the cached object itself; the
+            // buffer drops it again once the update is written
+            invalidate(project.getProjectId());
+            writeBehind.updateProject(project);
+        } else {
+            try {
+                dao.updateProject(project);
+            } finally {
+                // After a conflict the cached copy is out of date as well
+                invalidate(project.getProjectId());
+            }
+            reindex(project.getProjectId());
+        }
+    }
+
+    // Load the project, apply the change and write it back. If someone else updates the
+    // project in between, start again from a fresh copy, up to MAX_UPDATE_ATTEMPTS times.
+    // Always writes straight to the database, after flushing any buffered writes, so a
+    // conflict is seen here rather than later. Returns the updated project.
+    public Project updateProject(Integer projectId, Consumer<Project> change) {
+        LOG.debug("Updating project with ID {} with retries", projectId);
+        flushWrites();
+
+        for (int attempt = 1; ; attempt++) {
+            Project project = dao.getProject(projectId);
+            if (project == null) {
+                throw new DbException("Project with ID " + projectId + " does not exist");
+            }
+            change.accept(project);
+
+            try {
+                dao.updateProject(project);
+                invalidate(projectId);
+                reindex(projectId);
+                return project;
+            } catch (ProjectConflictException e) {
+                invalidate(projectId);
+                if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+                LOG.debug("Version conflict on project ID {}, retrying", projectId);
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Wait a random, growing time so competing writers don't collide again straight away
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, RETRY_BACKOFF_MILLIS << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while retrying a project update", e);
+        }
     }
 
     // Delete a project
     public void deleteProject(Integer projectId) {
-        System.out.println("Service: Deleting project with ID " + projectId);
+        LOG.debug("Deleting project with ID {}", projectId);
         dao.deleteProject(projectId);
+        invalidate(projectId);
+        reindex(projectId);
+    }
+
+    // Delete many projects with all their children in one transaction; returns how many existed
+    public int deleteProjects(Collection<Integer> projectIds) {
+        LOG.debug("Deleting {} projects", projectIds.size());
+        int deleted = dao.deleteProjects(projectIds);
+        projectIds.forEach(this::invalidate);
+        projectIds.forEach(this::reindex);
+        return deleted;
     }
 
     // Add a step to a project
     public void addStep(Step step) {
-        System.out.println("Service: Adding step to project ID " + step.getProjectId());
-        dao.addStep(step);
+        LOG.debug("Adding step to project ID {}", step.getProjectId());
+        if (writeBehind != null) {
+            // The buffer drops the cache entry once the step is written
+            writeBehind.addStep(step);
+        } else {
+            dao.addStep(step);
+            invalidate(step.getProjectId());
+            reindex(step.getProjectId());
+        }
+    }
+
+    // Insert a step right after another step, or first when afterStepId is null
+    public void insertStep(Step step, Integer afterStepId) {
+        LOG.debug("Inserting step into project ID {}", step.getProjectId());
+        dao.insertStep(step, afterStepId);
+        invalidate(step.getProjectId());
+        reindex(step.getProjectId());
+    }
+
+    // Move a step to right after another step, or to the front when afterStepId is null
+    public void moveStep(Integer projectId, Integer stepId, Integer afterStepId) {
+        LOG.debug("Moving step ID {} in project ID {}", stepId, projectId);
+        dao.moveStep(projectId, stepId, afterStepId);
+        invalidate(projectId);
+    }
+
+    // Delete one step of a project
+    public void deleteStep(Integer projectId, Integer stepId) {
+        LOG.debug("Deleting step ID {} from project ID {}", stepId, projectId);
+        dao.deleteStep(projectId, stepId);
+        invalidate(projectId);
+        reindex(projectId);
+    }
+
+    // Delete one material from a project
+    public void deleteMaterial(Integer projectId, Integer materialId) {
+        LOG.debug("Deleting material ID {} from project ID {}", materialId, projectId);
+        dao.deleteMaterial(projectId, materialId);
+        invalidate(projectId);
+        reindex(projectId);
+    }
+
+    // Add many steps to projects in one batch
+    public void addSteps(List<Step> steps) {
+        LOG.debug("Adding {} steps", steps.size());
+        dao.addSteps(steps);
+        steps.forEach(step -> {
+            invalidate(step.getProjectId());
+            reindex(step.getProjectId());
+        });
+    }
+
+    // Add many materials to projects in one batch
+    public void addMaterials(List<Material> materials) {
+        LOG.debug("Adding {} materials", materials.size());
+        dao.addMaterials(materials);
+        materials.forEach(material -> {
+            invalidate(material.getProjectId());
+            reindex(material.getProjectId());
+        });
+    }
+
+    // Link a project to several categories in one batch
+    public void linkCategories(Integer projectId, List<Integer> categoryIds) {
+        LOG.debug("Linking {} categories to project ID {}", categoryIds.size(), projectId);
+        dao.linkCategories(projectId, categoryIds);
+        invalidate(projectId);
+    }
+
+    // Get every category; served from memory
+    public List<Category> getCategories() {
+        return dao.getCategories();
+    }
+
+    // Get the number of projects in each category, most first; served from memory
+    public List<CategoryCount> getCategoryCounts() {
+        LOG.debug("Getting project counts by category");
+        return dao.getCategoryCounts();
+    }
+
+    // Reload categories after they were changed outside this application
+    public void refreshCategories() {
+        LOG.debug("Refreshing categories");
+        dao.refreshCategories();
     }
 
     // Get all steps for a project
     public List<Step> getSteps(Integer projectId) {
-        System.out.println("Service: Getting steps for project ID " + projectId);
+        LOG.debug("Getting steps for project ID {}", projectId);
         return dao.getSteps(projectId);
     }
+
+    // Drop a project from the cache after it changes. Call it once the write has committed:
+    // a read that started earlier then can't put the old project back.
+    private void invalidate(Integer projectId) {
+        if (cache != null) {
+            cache.invalidate(projectId);
+        }
+    }
+
+    // Queue a project for reindexing after it has been written
+    private void reindex(Integer projectId) {
+        SearchIndexer indexer = searchIndexer;
+        if (indexer != null) {
+            indexer.changed(projectId);
+        }
+    }
+
+    // Release database resources when the application exits
+    public void shutdown() {
+        LOG.debug("Shutting down");
+        try {
+            if (writeBehind != null) {
+                writeBehind.close();
+            }
+            if (searchIndexer != null) {
+                searchIndexer.close();
+            }
+        } finally {
+            DbConnection.shutdown();
+        }
+    }
 }
\ No newline at end of file
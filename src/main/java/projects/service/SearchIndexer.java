@@ -0,0 +1,131 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.log.Log;
+import projects.log.Logger;
+import projects.search.SearchIndex;
+
+// Keeps a SearchIndex in step with the database. Writers only note which projects changed;
+// a background thread reloads those projects in bulk and reindexes them, so a write never
+// waits for indexing and a burst of writes to one project is indexed once.
+class SearchIndexer {
+    private static final Logger LOG = Log.getLogger(SearchIndexer.class);
+
+    // Projects loaded per bulk read, both when building and when catching up
+    private static final int BATCH_SIZE = 500;
+
+    private final ProjectDao dao;
+    private final SearchIndex index = new SearchIndex();
+    // Guarded by this
+    private final Set<Integer> changed = new LinkedHashSet<>();
+    // Only one thread indexes at a time so an older copy never overwrites a newer one
+    private final Object indexLock = new Object();
+    private final ScheduledExecutorService worker;
+    private volatile boolean built = false;
+
+    SearchIndexer(ProjectDao dao, long delayMillis) {
+        this.dao = dao;
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::indexChangedQuietly, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    SearchIndex getIndex() {
+        return index;
+    }
+
+    // Index every project, reading them a page at a time. Projects noted as changed in the
+    // meantime are reindexed once it is done, since the copy read here may predate the
+    // write.
+    void rebuild() {
+        synchronized (indexLock) {
+            String pageToken = null;
+            do {
+                ProjectPage page = dao.getProjectPage(pageToken, BATCH_SIZE);
+                List<Integer> ids = new ArrayList<>();
+                for (ProjectSummary summary : page.getProjects()) {
+                    ids.add(summary.getProjectId());
+                }
+                for (Project project : dao.getProjects(ids)) {
+                    index.index(project);
+                }
+                pageToken = page.getNextPageToken();
+            } while (pageToken != null);
+            built = true;
+        }
+        LOG.debug("Search index built with {} projects", index.size());
+    }
+
+    // Whether rebuild() has finished at least once
+    boolean isBuilt() {
+        return built;
+    }
+
+    // Note that a project was written; it is reindexed shortly
+    synchronized void changed(Integer projectId) {
+        changed.add(projectId);
+    }
+
+    // Reindex every changed project now. Projects that no longer exist are dropped.
+    void indexChanged() {
+        synchronized (indexLock) {
+            List<Integer> ids;
+            while (!(ids = takeChanged()).isEmpty()) {
+                Set<Integer> found = new HashSet<>();
+                try {
+                    for (Project project : dao.getProjects(ids)) {
+                        index.index(project);
+                        found.add(project.getProjectId());
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        changed.addAll(ids);
+                    }
+                    throw e;
+                }
+                for (Integer id : ids) {
+                    if (!found.contains(id)) {
+                        index.remove(id);
+                    }
+                }
+            }
+        }
+    }
+
+    void close() {
+        worker.shutdownNow();
+    }
+
+    private synchronized List<Integer> takeChanged() {
+        List<Integer> ids = new ArrayList<>();
+        Iterator<Integer> it = changed.iterator();
+        while (it.hasNext() && ids.size() < BATCH_SIZE) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+
+    private void indexChangedQuietly() {
+        try {
+            indexChanged();
+        } catch (RuntimeException e) {
+            LOG.warn("Search indexing failed, will retry: {}", e.getMessage());
+        }
+    }
+}
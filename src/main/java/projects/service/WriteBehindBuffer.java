@@ -0,0 +1,416 @@
+package projects.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+import projects.entity.ProjectUpdate;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.exception.ProjectConflictException;
+import projects.log.Log;
+import projects.log.Logger;
+
+// Collects step inserts and project updates in memory and writes them to the database
+// in batched transactions. An update is a copy of the project's changes taken when it is
+// buffered, so the caller can keep changing the project while it is written. Updates of
+// the same project are coalesced into one write of every field changed in between. A
+// flush happens when enough writes are pending, on a timer, and on close. When the
+// buffer is full, callers wait for room (back-pressure).
+class WriteBehindBuffer {
+    private static final Logger LOG = Log.getLogger(WriteBehindBuffer.class);
+
+    // Failed flushes of a batch before its writes are tried in parts
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ProjectDao dao;
+    private final int capacity;
+    private final int flushThreshold;
+    private final long enqueueTimeoutMillis;
+    // Told the ID of every project touched by a successful flush
+    private final Consumer<Integer> onWritten;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Guarded by lock
+    private List<Step> pendingSteps = new ArrayList<>();
+    // One update per project ID, in the order the projects were first updated
+    private Map<Integer, ProjectUpdate> pendingUpdates = new LinkedHashMap<>();
+    // Failed write attempts of each buffered update or step, by identity (guarded by lock)
+    private final Map<Object, Integer> attempts = new IdentityHashMap<>();
+    private int inFlight = 0;
+    private boolean closed = false;
+
+    // Only one flush writes at a time so batches reach the database in order
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    WriteBehindBuffer(ProjectDao dao, int capacity, int flushThreshold, long flushIntervalMillis,
+                      long enqueueTimeoutMillis, Consumer<Integer> onWritten) {
+        if (capacity < 1 || flushThreshold < 1 || flushThreshold > capacity) {
+            throw new IllegalArgumentException("Need 1 <= flushThreshold <= capacity");
+        }
+        this.dao = dao;
+        this.capacity = capacity;
+        this.flushThreshold = flushThreshold;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.onWritten = onWritten;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    void addStep(Step step) {
+        boolean flushNow;
+        lock.lock();
+        try {
+            checkOpen();
+            awaitRoom();
+            pendingSteps.add(step);
+            flushNow = pendingCount() >= flushThreshold;
+        } finally {
+            lock.unlock();
+        }
+        if (flushNow) {
+            requestFlush();
+        }
+    }
+
+    void updateProject(Project project) {
+        ProjectUpdate update = project.takeChanges();
+        if (update.isEmpty()) {
+            return;
+        }
+
+        boolean flushNow;
+        lock.lock();
+        try {
+            checkOpen();
+            // An update of a project already waiting is merged into it and takes no room
+            ProjectUpdate waiting = pendingUpdates.get(update.getProjectId());
+            if (waiting == null) {
+                awaitRoom();
+                pendingUpdates.put(update.getProjectId(), update);
+            } else {
+                pendingUpdates.put(update.getProjectId(), merge(waiting, update));
+            }
+            flushNow = pendingCount() >= flushThreshold;
+        } finally {
+            lock.unlock();
+        }
+        if (flushNow) {
+            requestFlush();
+        }
+    }
+
+    // Write everything pending now. Throws if the database write fails; the writes stay
+    // buffered and are retried by the next flush, except for an update that failed with a
+    // version conflict, which is dropped. Once a batch has failed MAX_ATTEMPTS times it is
+    // written in halves to find the writes that keep failing, and those are dropped so they
+    // can't hold up the rest of the buffer.
+    void flush() {
+        synchronized (flushLock) {
+            List<Step> steps;
+            Map<Integer, ProjectUpdate> updates;
+
+            lock.lock();
+            try {
+                steps = pendingSteps;
+                updates = pendingUpdates;
+                pendingSteps = new ArrayList<>();
+                pendingUpdates = new LinkedHashMap<>();
+                inFlight = steps.size() + updates.size();
+            } finally {
+                lock.unlock();
+            }
+
+            if (steps.isEmpty() && updates.isEmpty()) {
+                return;
+            }
+
+            List<Object> batch = new ArrayList<>(updates.values());
+            batch.addAll(steps);
+            Set<Object> done = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<ProjectUpdate> written = new ArrayList<>();
+            Set<Integer> touched = new HashSet<>();
+
+            try {
+                write(batch, done, written, touched);
+            } catch (ProjectConflictException e) {
+                // A stale update can never succeed, so drop it and let the rest be retried
+                LOG.warn("Dropping buffered update: {}", e.getMessage());
+                ProjectUpdate stale = updates.get(e.getProjectId());
+                if (stale != null && Objects.equals(stale.getVersion(), e.getExpectedVersion())) {
+                    done.add(stale);
+                }
+                touched.add(e.getProjectId());
+                throw e;
+            } catch (RuntimeException e) {
+                if (!countFailure(batch)) {
+                    throw e;
+                }
+                LOG.warn("Buffered writes failed {} times, writing them in parts: {}", MAX_ATTEMPTS, e.getMessage());
+                if (!writeInParts(batch, done, written, touched)) {
+                    throw e;
+                }
+            } finally {
+                lock.lock();
+                try {
+                    steps.removeIf(done::contains);
+                    updates.values().removeIf(done::contains);
+                    done.forEach(attempts::remove);
+                    rebaseOnWritten(written);
+                    requeue(steps, updates);
+                    inFlight = 0;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                touched.forEach(onWritten);
+            }
+        }
+    }
+
+    // Stop the timer and write whatever is left. If that last flush fails, every write still
+    // buffered is logged at error level so it can be recovered by hand, and the failure is
+    // thrown.
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logUnwritten();
+            throw e;
+        }
+    }
+
+    // Flush on the flusher thread. Once the buffer is closing the flusher takes no more
+    // work, but then close() writes what this write added.
+    private void requestFlush() {
+        try {
+            flusher.execute(this::flushQuietly);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Write-behind buffer is closing, leaving the flush to close()");
+        }
+    }
+
+    private void logUnwritten() {
+        lock.lock();
+        try {
+            for (ProjectUpdate update : pendingUpdates.values()) {
+                Map<Project.Field, Object> values = new EnumMap<>(Project.Field.class);
+                for (Project.Field field : update.getFields()) {
+                    values.put(field, update.getValue(field));
+                }
+                LOG.error("Write-behind buffer closed without writing the update of project {}: {}",
+                        update.getProjectId(), values);
+            }
+            for (Step step : pendingSteps) {
+                LOG.error("Write-behind buffer closed without writing a new step of project {}: {}",
+                        step.getProjectId(), step.getStepText());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.warn("Write-behind flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    // Must hold lock. Rejects a write before it is buffered once the buffer is closed.
+    private void checkOpen() {
+        if (closed) {
+            throw new DbException("Write-behind buffer has been closed");
+        }
+    }
+
+    // Must hold lock. Waits until there is room for one more write.
+    private void awaitRoom() {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+        try {
+            while (!closed && pendingCount() + inFlight >= capacity) {
+                if (remainingNanos <= 0) {
+                    throw new DbException("Write-behind buffer is full (" + capacity + " pending writes)");
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while waiting for room in the write-behind buffer", e);
+        }
+        if (closed) {
+            throw new DbException("Write-behind buffer has been closed");
+        }
+    }
+
+    // Write the given updates and steps in one transaction and mark them done
+    private void write(List<Object> items, Set<Object> done, List<ProjectUpdate> written, Set<Integer> touched) {
+        List<ProjectUpdate> updates = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        for (Object item : items) {
+            if (item instanceof ProjectUpdate) {
+                updates.add((ProjectUpdate) item);
+            } else {
+                steps.add((Step) item);
+            }
+        }
+
+        dao.applyWrites(updates, steps);
+        written.addAll(updates);
+        for (Object item : items) {
+            done.add(item);
+            touched.add(projectIdOf(item));
+        }
+    }
+
+    // Write the items in halves, and those halves in halves, until every write has either
+    // gone through or failed on its own. A write that fails on its own with an error the
+    // database will give again (bad data, a constraint violation) is dropped. Returns false,
+    // leaving the rest for the next flush, if a failure looks transient instead.
+    private boolean writeInParts(List<Object> items, Set<Object> done, List<ProjectUpdate> written,
+                                 Set<Integer> touched) {
+        try {
+            write(items, done, written, touched);
+            return true;
+        } catch (RuntimeException e) {
+            if (items.size() > 1) {
+                int middle = items.size() / 2;
+                return writeInParts(items.subList(0, middle), done, written, touched)
+                        && writeInParts(items.subList(middle, items.size()), done, written, touched);
+            }
+            if (!(e instanceof ProjectConflictException) && !isPermanent(e)) {
+                return false;
+            }
+
+            Object item = items.get(0);
+            String what = item instanceof ProjectUpdate ? "update of project " : "new step of project ";
+            LOG.error("Dropping buffered {}{} that keeps failing: {}", what, projectIdOf(item), e.getMessage(), e);
+            done.add(item);
+            touched.add(projectIdOf(item));
+            return true;
+        }
+    }
+
+    // A failure the database will report again on a retry: a data exception or an
+    // integrity constraint violation, or no database error at all
+    private static boolean isPermanent(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                return state != null && (state.startsWith("22") || state.startsWith("23"));
+            }
+        }
+        return true;
+    }
+
+    // Count one more failed attempt for every item. Returns true once any of them has
+    // failed MAX_ATTEMPTS times.
+    private boolean countFailure(List<Object> items) {
+        lock.lock();
+        try {
+            boolean exhausted = false;
+            for (Object item : items) {
+                int count = attempts.merge(item, 1, Integer::sum);
+                exhausted |= count >= MAX_ATTEMPTS;
+            }
+            return exhausted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Integer projectIdOf(Object item) {
+        return item instanceof ProjectUpdate ? ((ProjectUpdate) item).getProjectId() : ((Step) item).getProjectId();
+    }
+
+    // Must hold lock. Updates buffered while these were being written were taken from
+    // projects still at the version just replaced, so move them to the new version.
+    private void rebaseOnWritten(List<ProjectUpdate> written) {
+        for (ProjectUpdate update : written) {
+            pendingUpdates.computeIfPresent(update.getProjectId(), (id, waiting) -> {
+                ProjectUpdate rebased = waiting.rebaseOnto(update);
+                moveAttempts(waiting, rebased);
+                return rebased;
+            });
+        }
+    }
+
+    // Must hold lock. Put a failed batch back in front of anything buffered since.
+    private void requeue(List<Step> steps, Map<Integer, ProjectUpdate> updates) {
+        steps.addAll(pendingSteps);
+        pendingSteps = steps;
+
+        for (ProjectUpdate update : pendingUpdates.values()) {
+            updates.merge(update.getProjectId(), update, this::merge);
+        }
+        pendingUpdates = updates;
+    }
+
+    // Must hold lock. Merge a later update into an earlier one of the same project,
+    // keeping the earlier one's failed attempts.
+    private ProjectUpdate merge(ProjectUpdate earlier, ProjectUpdate later) {
+        ProjectUpdate merged = earlier.mergeWith(later);
+        moveAttempts(earlier, merged);
+        return merged;
+    }
+
+    // Must hold lock
+    private void moveAttempts(ProjectUpdate from, ProjectUpdate to) {
+        Integer count = attempts.remove(from);
+        if (count != null) {
+            attempts.put(to, count);
+        }
+    }
+
+    // Must hold lock
+    private int pendingCount() {
+        return pendingSteps.size() + pendingUpdates.size();
+    }
+}
@@ -0,0 +1,337 @@
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This maps result set rows to objects of one entity class. It follows the same rules as
+ * {@link DaoBase#extract(ResultSet, Class)} but does all of the expensive work up front:
+ * <ol>
+ * <li>The entity class is analyzed once, the first time a mapper for it is requested. The
+ * zero-argument constructor and a setter for every field are turned into method handles, and each
+ * field's column name is worked out from its Java name.</li>
+ * <li>The first time a result set with a given set of columns is seen, each field is bound to the
+ * index of its column. Fields without a column are left out. The binding is cached by the column
+ * labels and reused for later result sets with the same columns.</li>
+ * </ol>
+ *
+ * So mapping a row only reads values by column index and calls the prebuilt setters: there are no
+ * reflection lookups, no name conversion and no exceptions used to detect missing columns.
+ * {@link #mapAll(ResultSet)} looks the binding up once for the whole result set. {@link
+ * #map(ResultSet)} remembers, per thread, the binding of the result set it last mapped, so rows of
+ * the same result set skip the lookup too. The mapper never keeps a result set reachable.
+ *
+ * <pre>
+ * List&lt;Project&gt; projects = RowMapper.forClass(Project.class).mapAll(rs);
+ * </pre>
+ *
+ * @param <T> The entity type produced by this mapper.
+ */
+public class RowMapper<T> {
+  private static final ClassValue<RowMapper<?>> MAPPERS = new ClassValue<>() {
+    @Override
+    protected RowMapper<?> computeValue(Class<?> type) {
+      return new RowMapper<>(type);
+    }
+  };
+
+  /* At most this many result set shapes are cached per class; others are bound every time. */
+  private static final int MAX_SHAPES = 64;
+
+  private final Class<T> classType;
+  private final MethodHandle constructor;
+  private final Map<String, FieldSetter> settersByColumn = new HashMap<>();
+
+  /* Bindings by result set shape (the column labels, in order). */
+  private final Map<String, Binding> bindingsByShape = new ConcurrentHashMap<>();
+
+  /*
+   * Each thread's last result set, weakly held, and its binding, so rows of the same result set
+   * skip the lookup without threads replacing each other's entry.
+   */
+  private final ThreadLocal<LastBinding> lastBinding = new ThreadLocal<>();
+
+  /**
+   * Returns the mapper for the given class, analyzing the class the first time it is requested.
+   *
+   * @param <T> The entity type.
+   * @param classType The entity class. It must have a public zero-argument constructor.
+   * @return The shared mapper for the class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> RowMapper<T> forClass(Class<T> classType) {
+    return (RowMapper<T>)MAPPERS.get(classType);
+  }
+
+  /**
+   * Analyzes the entity class and builds the constructor and setter handles.
+   *
+   * @param classType The entity class.
+   */
+  private RowMapper(Class<T> classType) {
+    this.classType = classType;
+
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(classType, MethodHandles.lookup());
+
+      this.constructor = lookup.findConstructor(classType, MethodType.methodType(void.class))
+          .asType(MethodType.methodType(Object.class));
+
+      for(Field field : classType.getDeclaredFields()) {
+        if(Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+          continue;
+        }
+
+        MethodHandle setter = lookup.unreflectSetter(field)
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+        settersByColumn.put(camelCaseToSnakeCase(field.getName()),
+            new FieldSetter(setter, field.getType()));
+      }
+    }
+    catch(ReflectiveOperationException | RuntimeException e) {
+      throw new DaoBase.DaoException("Unable to build a row mapper for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Creates an object from the current row of the result set. Only fields whose column is present
+   * and not null are assigned, so initialized instance variables (like lists) are preserved.
+   *
+   * @param rs The result set, positioned on the row to map by the caller.
+   * @return A populated object.
+   * @throws SQLException Thrown if an error occurs reading the row.
+   */
+  public T map(ResultSet rs) throws SQLException {
+    LastBinding last = lastBinding.get();
+    Binding binding;
+
+    if(last != null && last.resultSet.get() == rs) {
+      binding = last.binding;
+    }
+    else {
+      binding = bindingFor(rs);
+      lastBinding.set(new LastBinding(rs, binding));
+    }
+
+    return map(rs, binding);
+  }
+
+  /**
+   * Creates an object from every remaining row of the result set, binding columns once.
+   *
+   * @param rs The result set, positioned before the first row to map.
+   * @return The populated objects, in row order.
+   * @throws SQLException Thrown if an error occurs reading the rows.
+   */
+  public List<T> mapAll(ResultSet rs) throws SQLException {
+    Binding binding = bindingFor(rs);
+    List<T> objects = new ArrayList<>();
+
+    while(rs.next()) {
+      objects.add(map(rs, binding));
+    }
+
+    return objects;
+  }
+
+  /**
+   * Creates an object from the current row using the given binding.
+   *
+   * @param rs The result set, positioned on the row to map.
+   * @param binding The binding for the result set's columns.
+   * @return A populated object.
+   * @throws SQLException Thrown if an error occurs reading the row.
+   */
+  private T map(ResultSet rs, Binding binding) throws SQLException {
+    T obj = newInstance();
+
+    for(int i = 0; i < binding.columnIndexes.length; i++) {
+      Object value = rs.getObject(binding.columnIndexes[i]);
+
+      if(value != null) {
+        binding.setters[i].set(obj, value);
+      }
+    }
+
+    return obj;
+  }
+
+  /**
+   * Returns the column binding for the result set, building it from the result set metadata if
+   * this shape has not been seen before.
+   *
+   * @param rs The result set.
+   * @return The binding.
+   * @throws SQLException Thrown if the metadata can't be read.
+   */
+  private Binding bindingFor(ResultSet rs) throws SQLException {
+    ResultSetMetaData meta = rs.getMetaData();
+    int columnCount = meta.getColumnCount();
+    StringBuilder shape = new StringBuilder();
+
+    for(int col = 1; col <= columnCount; col++) {
+      shape.append(meta.getColumnLabel(col)).append(',');
+    }
+
+    String key = shape.toString();
+    Binding binding = bindingsByShape.get(key);
+
+    if(binding == null) {
+      binding = bind(meta, columnCount);
+
+      if(bindingsByShape.size() < MAX_SHAPES) {
+        bindingsByShape.putIfAbsent(key, binding);
+      }
+    }
+
+    return binding;
+  }
+
+  /**
+   * Matches result set columns to fields. The first column with a field's name wins, as with
+   * {@link ResultSet#getObject(String)}.
+   *
+   * @param meta The result set metadata.
+   * @param columnCount The number of columns.
+   * @return The binding.
+   */
+  private Binding bind(ResultSetMetaData meta, int columnCount) {
+    List<Integer> indexes = new ArrayList<>();
+    List<FieldSetter> setters = new ArrayList<>();
+    Map<String, FieldSetter> unbound = new HashMap<>(settersByColumn);
+
+    try {
+      for(int col = 1; col <= columnCount; col++) {
+        FieldSetter setter = unbound.remove(meta.getColumnLabel(col).toLowerCase());
+
+        if(setter != null) {
+          indexes.add(col);
+          setters.add(setter);
+        }
+      }
+    }
+    catch(SQLException e) {
+      throw new DaoBase.DaoException("Unable to read result set columns for " + classType.getName(),
+          e);
+    }
+
+    int[] columnIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+    return new Binding(columnIndexes, setters.toArray(new FieldSetter[0]));
+  }
+
+  /**
+   * Calls the zero-argument constructor.
+   *
+   * @return A new, empty entity.
+   */
+  @SuppressWarnings("unchecked")
+  private T newInstance() {
+    try {
+      return (T)constructor.invokeExact();
+    }
+    catch(Throwable e) {
+      throw new DaoBase.DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time).
+   *
+   * @param identifier The name in camel case to convert.
+   * @return The name converted to snake case.
+   */
+  private static String camelCaseToSnakeCase(String identifier) {
+    StringBuilder nameBuilder = new StringBuilder();
+
+    for(char ch : identifier.toCharArray()) {
+      if(Character.isUpperCase(ch)) {
+        nameBuilder.append('_').append(Character.toLowerCase(ch));
+      }
+      else {
+        nameBuilder.append(ch);
+      }
+    }
+
+    return nameBuilder.toString();
+  }
+
+  /**
+   * A prebuilt setter for one field, with the field type kept for value conversion.
+   */
+  private static class FieldSetter {
+    private final MethodHandle setter;
+    private final Class<?> fieldType;
+
+    private FieldSetter(MethodHandle setter, Class<?> fieldType) {
+      this.setter = setter;
+      this.fieldType = fieldType;
+    }
+
+    /**
+     * Assigns the value, converting Time to LocalTime and Timestamp to LocalDateTime.
+     *
+     * @param obj The object to populate.
+     * @param value The non-null column value.
+     */
+    private void set(Object obj, Object value) {
+      if(value instanceof Time && fieldType == LocalTime.class) {
+        value = ((Time)value).toLocalTime();
+      }
+      else if(value instanceof Timestamp && fieldType == LocalDateTime.class) {
+        value = ((Timestamp)value).toLocalDateTime();
+      }
+
+      try {
+        setter.invokeExact(obj, value);
+      }
+      catch(Throwable e) {
+        throw new DaoBase.DaoException("Unable to set a " + fieldType.getName() + " field from "
+            + value.getClass().getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Column indexes and the setters they feed, in step.
+   */
+  private static class Binding {
+    private final int[] columnIndexes;
+    private final FieldSetter[] setters;
+
+    private Binding(int[] columnIndexes, FieldSetter[] setters) {
+      this.columnIndexes = columnIndexes;
+      this.setters = setters;
+    }
+  }
+
+  /**
+   * A thread's last result set and its binding. The result set is weakly held so a finished one,
+   * and the rows it buffers, can be collected.
+   */
+  private static class LastBinding {
+    private final WeakReference<ResultSet> resultSet;
+    private final Binding binding;
+
+    private LastBinding(ResultSet resultSet, Binding binding) {
+      this.resultSet = new WeakReference<>(resultSet);
+      this.binding = binding;
+    }
+  }
+}
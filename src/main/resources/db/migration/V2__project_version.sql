@@ -0,0 +1,2 @@
+-- Version number for optimistic locking of project updates
+ALTER TABLE project ADD COLUMN version INT NOT NULL DEFAULT 0;
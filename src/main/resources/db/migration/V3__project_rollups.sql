@@ -0,0 +1,31 @@
+-- Step count, material count and total material cost, kept on the project row by
+-- ProjectDao so listings don't load any children
+--
+-- Each column is only added if information_schema doesn't list it yet, so the script
+-- can run again if the backfill below fails.
+
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'project' AND column_name = 'step_count'),
+  'DO 0', 'ALTER TABLE project ADD COLUMN step_count INT NOT NULL DEFAULT 0');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'project' AND column_name = 'material_count'),
+  'DO 0', 'ALTER TABLE project ADD COLUMN material_count INT NOT NULL DEFAULT 0');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'project' AND column_name = 'total_cost'),
+  'DO 0', 'ALTER TABLE project ADD COLUMN total_cost DECIMAL(12,2) NOT NULL DEFAULT 0');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+UPDATE project p SET
+  step_count = (SELECT COUNT(*) FROM step s WHERE s.project_id = p.project_id),
+  material_count = (SELECT COUNT(*) FROM material m WHERE m.project_id = p.project_id),
+  total_cost = (SELECT COALESCE(SUM(m.num_required * m.cost), 0) FROM material m WHERE m.project_id = p.project_id);
@@ -0,0 +1,39 @@
+-- An index for every access path in ProjectDao. InnoDB secondary indexes end with the
+-- primary key, so each one also orders ties by ID for keyset pagination. Creating an
+-- index that starts with a foreign key column drops the index MySQL made for the key.
+--
+-- MySQL has no CREATE INDEX IF NOT EXISTS, so each index is only created if
+-- information_schema doesn't list it yet. That lets the script run again after failing
+-- part way.
+
+-- Steps of a project in order, and the next/previous step lookups when reordering
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'step' AND index_name = 'step_project_order'),
+  'DO 0', 'CREATE INDEX step_project_order ON step (project_id, step_order)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+-- Materials of a project
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'material' AND index_name = 'material_project'),
+  'DO 0', 'CREATE INDEX material_project ON material (project_id)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+-- Listings and exports by name
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project' AND index_name = 'project_name'),
+  'DO 0', 'CREATE INDEX project_name ON project (project_name)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+-- Listings by total cost, most expensive first
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project' AND index_name = 'project_total_cost'),
+  'DO 0', 'CREATE INDEX project_total_cost ON project (total_cost DESC, project_id)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
@@ -0,0 +1,9 @@
+-- A counter bumped by every transaction that adds or removes project_category rows, so
+-- CategoryDictionary can tell that links changed without scanning the table
+CREATE TABLE project_category_version (
+  id TINYINT NOT NULL,
+  version BIGINT NOT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO project_category_version (id, version) VALUES (1, 0);
@@ -0,0 +1,253 @@
+package provided.util;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Checks {@link RowMapper} against stub result sets, without a database or a test framework. Run
+ * it after building the test classes:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes provided.util.RowMapperCheck
+ * </pre>
+ *
+ * It exits with status 1 and a message on the first failed check.
+ */
+public class RowMapperCheck {
+  private static final String[] COLUMNS =
+      { "row_id", "name", "start_time", "row_insert_time", "notes", "unmapped" };
+
+  public static void main(String[] args) throws Exception {
+    try {
+      mapsColumnsToFields();
+      readsMetadataOncePerResultSet();
+      reusesBindingsAcrossThreads();
+      cachesBindingsByShape();
+      doesNotKeepResultSet();
+    }
+    catch(AssertionError e) {
+      System.err.println("RowMapper check failed: " + e.getMessage());
+      System.exit(1);
+    }
+
+    System.out.println("All RowMapper checks passed");
+  }
+
+  /**
+   * Columns are matched by snake case name, times are converted, and null or missing columns leave
+   * the field as initialized.
+   */
+  private static void mapsColumnsToFields() throws SQLException {
+    Timestamp inserted = Timestamp.valueOf("2024-03-01 10:15:30");
+    StubResultSet stub = new StubResultSet(COLUMNS,
+        new Object[] { 7, "Deck", Time.valueOf("08:30:00"), inserted, null, "x" });
+    ResultSet rs = stub.proxy();
+
+    List<Row> rows = RowMapper.forClass(Row.class).mapAll(rs);
+
+    check(rows.size() == 1, "expected one row, got " + rows.size());
+    Row row = rows.get(0);
+    check(row.rowId == 7, "row_id not mapped");
+    check("Deck".equals(row.name), "name not mapped");
+    check(LocalTime.of(8, 30).equals(row.startTime), "Time not converted to LocalTime");
+    check(inserted.toLocalDateTime().equals(row.rowInsertTime),
+        "Timestamp not converted to LocalDateTime");
+    check("none".equals(row.notes), "null column overwrote an initialized field");
+    check(row.tags != null && row.tags.isEmpty(), "field without a column was changed");
+  }
+
+  /**
+   * Mapping row by row reads the metadata once per result set, not once per row.
+   */
+  private static void readsMetadataOncePerResultSet() throws SQLException {
+    StubResultSet stub = new StubResultSet(COLUMNS, row(1), row(2), row(3));
+    ResultSet rs = stub.proxy();
+    RowMapper<Row> mapper = RowMapper.forClass(Row.class);
+    List<Integer> ids = new ArrayList<>();
+
+    while(rs.next()) {
+      ids.add(mapper.map(rs).rowId);
+    }
+
+    check(ids.equals(List.of(1, 2, 3)), "rows mapped out of order: " + ids);
+    check(stub.metadataReads == 1, "metadata read " + stub.metadataReads + " times for 3 rows");
+  }
+
+  /**
+   * Threads mapping different result sets at the same time don't make each other re-read the
+   * metadata.
+   */
+  private static void reusesBindingsAcrossThreads() throws Exception {
+    RowMapper<Row> mapper = RowMapper.forClass(Row.class);
+    StubResultSet first = new StubResultSet(COLUMNS, row(1), row(2));
+    StubResultSet second = new StubResultSet(COLUMNS, row(3), row(4));
+    ResultSet firstRs = first.proxy();
+    ResultSet secondRs = second.proxy();
+
+    firstRs.next();
+    mapper.map(firstRs);
+    runInThread(() -> {
+      secondRs.next();
+      mapper.map(secondRs);
+    });
+    firstRs.next();
+    mapper.map(firstRs);
+    runInThread(() -> {
+      secondRs.next();
+      mapper.map(secondRs);
+    });
+
+    check(first.metadataReads == 1,
+        "metadata of the first result set read " + first.metadataReads + " times");
+    check(second.metadataReads == 2,
+        "metadata of the second result set read " + second.metadataReads + " times");
+  }
+
+  /**
+   * A result set with a shape seen before reads each label once, for the shape key, and is not
+   * bound again.
+   */
+  private static void cachesBindingsByShape() throws SQLException {
+    String[] columns = { "name", "row_id" };
+    RowMapper<Row> mapper = RowMapper.forClass(Row.class);
+
+    StubResultSet first = new StubResultSet(columns, new Object[] { "a", 1 });
+    mapper.mapAll(first.proxy());
+    check(first.labelReads == 4, "first result set read " + first.labelReads + " labels");
+
+    StubResultSet second = new StubResultSet(columns, new Object[] { "b", 2 });
+    List<Row> rows = mapper.mapAll(second.proxy());
+    check(second.labelReads == 2, "cached shape read " + second.labelReads + " labels");
+    check(rows.get(0).rowId == 2 && "b".equals(rows.get(0).name), "cached binding mapped wrongly");
+  }
+
+  /**
+   * Once the caller drops a result set it can be collected, even though the thread's last binding
+   * still refers to it.
+   */
+  private static void doesNotKeepResultSet() throws InterruptedException, SQLException {
+    WeakReference<ResultSet> ref = mapOneRow();
+
+    for(int attempt = 0; attempt < 50 && ref.get() != null; attempt++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+
+    check(ref.get() == null, "the mapper kept a result set reachable");
+  }
+
+  private static WeakReference<ResultSet> mapOneRow() throws SQLException {
+    ResultSet rs = new StubResultSet(COLUMNS, row(9)).proxy();
+    rs.next();
+    RowMapper.forClass(Row.class).map(rs);
+    return new WeakReference<>(rs);
+  }
+
+  private static Object[] row(int id) {
+    return new Object[] { id, "row " + id, null, null, null, null };
+  }
+
+  private static void runInThread(SqlTask task) throws Exception {
+    Throwable[] failure = new Throwable[1];
+    Thread thread = new Thread(() -> {
+      try {
+        task.run();
+      }
+      catch(Throwable e) {
+        failure[0] = e;
+      }
+    });
+
+    thread.start();
+    thread.join();
+
+    if(failure[0] != null) {
+      throw new AssertionError("mapping on another thread failed", failure[0]);
+    }
+  }
+
+  private static void check(boolean condition, String message) {
+    if(!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+  private interface SqlTask {
+    void run() throws SQLException;
+  }
+
+  /**
+   * The entity used by the checks.
+   */
+  public static class Row {
+    private Integer rowId;
+    private String name;
+    private LocalTime startTime;
+    private LocalDateTime rowInsertTime;
+    private String notes = "none";
+    private List<String> tags = new ArrayList<>();
+  }
+
+  /**
+   * A forward-only result set over fixed rows that counts metadata reads.
+   */
+  private static class StubResultSet {
+    private final String[] labels;
+    private final Object[][] rows;
+    private int current = -1;
+    private int metadataReads;
+    private int labelReads;
+
+    private StubResultSet(String[] labels, Object[]... rows) {
+      this.labels = labels;
+      this.rows = rows;
+    }
+
+    private ResultSet proxy() {
+      ResultSetMetaData meta = (ResultSetMetaData)Proxy.newProxyInstance(
+          getClass().getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+          (proxy, method, args) -> {
+            switch(method.getName()) {
+              case "getColumnCount":
+                return labels.length;
+              case "getColumnLabel":
+                labelReads++;
+                return labels[(Integer)args[0] - 1];
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+
+      return (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+            switch(method.getName()) {
+              case "next":
+                return ++current < rows.length;
+              case "getMetaData":
+                metadataReads++;
+                return meta;
+              case "getObject":
+                return rows[current][(Integer)args[0] - 1];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              case "toString":
+                return "StubResultSet" + Objects.toString(List.of(labels));
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+  }
+}